@@ -2,12 +2,15 @@ package com.dbdeploy;
 
 import com.dbdeploy.database.*;
 import com.dbdeploy.exceptions.UsageException;
+import com.dbdeploy.listener.*;
+import com.dbdeploy.log.*;
 import org.apache.tools.ant.*;
 
 import java.io.File;
 
 public class AntTarget extends Task {
 	private DbDeploy dbDeploy = new DbDeploy(null);
+	private LogLevel logLevel;
 
 	private static String ANT_USAGE = "\n\nDbdeploy Ant Task Usage"
 			+ "\n======================="
@@ -25,22 +28,47 @@ public class AntTarget extends Task {
 			+ "\n\t\tundoOutputfile=\"[UNDO SCRIPT PATH + NAME]\""
 			+ "\n\t\tchangeLogTableName=\"[CHANGE LOG TABLE NAME]\""
 			+ "\n\t\tdelimiter=\"[STATEMENT DELIMITER - default ;]\""
-			+ "\n\t\tdelimitertype=\"[STATEMENT DELIMITER TYPE - row or normal, default normal]\""
+			+ "\n\t\tdelimitertype=\"[STATEMENT DELIMITER TYPE - row, normal or lexical, default normal]\""
+			+ "\n\t\tbatchsize=\"[MAXIMUM STATEMENTS PER JDBC BATCH - default off]\""
+			+ "\n\t\tadaptivebatchsize=\"[ADAPT BATCH SIZE TO THE DATABASE - true or false, default false]\""
+			+ "\n\t\ttransactiongrouping=\"[SCRIPTS PER TRANSACTION - script, count or deploy, default script]\""
+			+ "\n\t\tcommitinterval=\"[SCRIPTS PER COMMIT WHEN GROUPING BY count - default 100]\""
+			+ "\n\t\tpipelinedepth=\"[STATEMENTS TO READ AHEAD ON A SEPARATE THREAD - default off]\""
+			+ "\n\t\ttimingreport=\"[FILE TO WRITE SCRIPT AND STATEMENT TIMINGS TO AS JSON]\""
+			+ "\n\t\tmetricsfile=\"[FILE TO WRITE PROMETHEUS METRICS TO]\""
+			+ "\n\t\tchecksums=\"[RECORD AND CHECK SCRIPT CHECKSUMS - true or false, default false]\""
+			+ "\n\t\tdeploylock=\"[TAKE TURNS WITH OTHER NODES THROUGH THE CHANGELOG LOCK TABLE - true or false, default false]\""
+			+ "\n\t\tlocktimeout=\"[SECONDS TO WAIT FOR THE DEPLOY LOCK - default 600]\""
+			+ "\n\t\tlocklease=\"[SECONDS A DEPLOY LOCK LASTS WITHOUT A HEARTBEAT - default 30]\""
+			+ "\n\t\tmanifestdirectory=\"[DIRECTORY TO KEEP SCAN MANIFESTS IN - default none]\""
+			+ "\n\t\trecursive=\"[TAKE SCRIPTS FROM ALL SUB-DIRECTORIES TOO - true or false, default false]\""
+			+ "\n\t\tloglevel=\"[PROGRESS OUTPUT - quiet, normal or verbose, default normal]\""
+			+ "\n\t\tstreamingoutput=\"[RENDER OUTPUT FILES ONE SCRIPT AT A TIME - true or false, default false]\""
 			+ "\n\t/>"
 			+ "\n\n* - Indicates mandatory parameter";
 
 	@Override
 	public void execute() throws BuildException {
+		// the level is process-wide, so it is put back for the next task in this JVM
+		LogLevel previousLogLevel = Log.getLevel();
+
 		try {
+			if (logLevel != null)
+				Log.setLevel(logLevel);
+
 			dbDeploy.go();
 		}
 		catch (UsageException ex) {
+			Log.flush();
 			System.err.println(ANT_USAGE);
 			throw new BuildException(ex.getMessage());
 		}
 		catch (Exception ex) {
 			throw new BuildException(ex);
 		}
+		finally {
+			Log.setLevel(previousLogLevel);
+		}
 	}
 
 	public void setDir(File dir) {
@@ -102,5 +130,65 @@ public class AntTarget extends Task {
 	public void setLineEnding(LineEnding lineEnding) {
 		dbDeploy.setLineEnding(lineEnding);
 	}
+
+	public void setBatchSize(int batchSize) {
+		dbDeploy.setBatchSize(batchSize);
+	}
+
+	public void setAdaptiveBatchSize(boolean adaptiveBatchSize) {
+		dbDeploy.setAdaptiveBatchSize(adaptiveBatchSize);
+	}
+
+	public void setTransactionGrouping(TransactionGrouping transactionGrouping) {
+		dbDeploy.setTransactionGrouping(transactionGrouping);
+	}
+
+	public void setCommitInterval(int commitInterval) {
+		dbDeploy.setCommitInterval(commitInterval);
+	}
+
+	public void setPipelineDepth(int pipelineDepth) {
+		dbDeploy.setPipelineDepth(pipelineDepth);
+	}
+
+	public void setStreamingOutput(boolean streamingOutput) {
+		dbDeploy.setStreamingOutput(streamingOutput);
+	}
+
+	public void setTimingReport(File timingReport) {
+		dbDeploy.addListener(new JsonTimingReport(timingReport));
+	}
+
+	public void setMetricsFile(File metricsFile) {
+		dbDeploy.addListener(new DeployMetrics(metricsFile));
+	}
+
+	public void setChecksums(boolean checksums) {
+		dbDeploy.setChecksums(checksums);
+	}
+
+	public void setDeployLock(boolean deployLock) {
+		dbDeploy.setDeployLock(deployLock);
+	}
+
+	public void setLockTimeout(int lockTimeout) {
+		dbDeploy.setLockTimeout(lockTimeout);
+	}
+
+	public void setLockLease(int lockLease) {
+		dbDeploy.setLockLease(lockLease);
+	}
+
+	public void setManifestDirectory(File manifestDirectory) {
+		dbDeploy.setScanManifestDirectory(manifestDirectory);
+	}
+
+	public void setRecursive(boolean recursive) {
+		dbDeploy.setRecursiveScan(recursive);
+	}
+
+	public void setLogLevel(LogLevel logLevel) {
+		this.logLevel = logLevel;
+	}
 }
 
@@ -0,0 +1,59 @@
+package com.dbdeploy;
+
+import com.dbdeploy.scripts.ChangeScript;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Working out the pending scripts when every available script has already been applied,
+ * which is what most deploys look like.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ControllerBenchmark {
+
+	@Param({"1000", "10000", "100000"})
+	private int scripts;
+
+	private List<ChangeScript> available;
+	private AppliedChangeSet appliedSet;
+	private List<Long> appliedList;
+
+
+	@Setup
+	public void setUp() {
+		available = new ArrayList<>(scripts);
+		appliedList = new ArrayList<>(scripts);
+
+		for (int i = 0; i < scripts; i++) {
+			available.add(new ChangeScript(i + 1));
+			appliedList.add((long) (i + 1));
+		}
+
+		appliedSet = AppliedChangeSet.of(appliedList);
+	}
+
+
+	@Benchmark
+	public List<ChangeScript> rangeMerge() {
+		return Controller.identifyChangesToApply(Long.MAX_VALUE, available, appliedSet);
+	}
+
+
+	/**
+	 * The boxed {@code List.contains} scan the controller used before, kept as a baseline.
+	 */
+	@Benchmark
+	public List<ChangeScript> listContains() {
+		List<ChangeScript> result = new ArrayList<>();
+
+		for (ChangeScript script : available)
+			if (!appliedList.contains(script.getId()))
+				result.add(script);
+
+		return result;
+	}
+}
@@ -0,0 +1,42 @@
+package com.dbdeploy;
+
+import com.dbdeploy.scripts.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listing a repository and turning its files into change scripts. The directory stays in
+ * the OS cache between iterations, so this measures dbdeploy rather than the disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DirectoryScannerBenchmark {
+
+	@Param({"1000", "10000", "100000"})
+	private int scripts;
+
+	private SyntheticRepository repository;
+	private final DirectoryScanner scanner = new DirectoryScanner("UTF-8");
+
+
+	@Setup
+	public void setUp() throws IOException {
+		repository = SyntheticRepository.create(scripts);
+	}
+
+
+	@TearDown
+	public void tearDown() throws IOException {
+		repository.close();
+	}
+
+
+	@Benchmark
+	public List<ChangeScript> getChangeScriptsForDirectory() {
+		return scanner.getChangeScriptsForDirectory(repository.getDirectory());
+	}
+}
@@ -0,0 +1,45 @@
+package com.dbdeploy;
+
+import com.dbdeploy.scripts.FilenameParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FilenameParserBenchmark {
+
+	@Param({"1000", "10000", "100000"})
+	private int scripts;
+
+	private final FilenameParser parser = new FilenameParser();
+	private List<String> filenames;
+	private List<String> otherFilenames;
+
+
+	@Setup
+	public void setUp() {
+		filenames = SyntheticRepository.filenames(scripts);
+		otherFilenames = new ArrayList<>(scripts);
+
+		for (String filename : filenames)
+			otherFilenames.add("README-" + filename);
+	}
+
+
+	@Benchmark
+	public void extractIdFromFilename(Blackhole blackhole) {
+		for (String filename : filenames)
+			blackhole.consume(parser.extractIdFromFilename(filename));
+	}
+
+
+	@Benchmark
+	public void parseIdOfOtherFiles(Blackhole blackhole) {
+		for (String filename : otherFilenames)
+			blackhole.consume(parser.parseId(filename));
+	}
+}
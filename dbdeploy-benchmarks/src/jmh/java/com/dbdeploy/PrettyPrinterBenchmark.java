@@ -0,0 +1,59 @@
+package com.dbdeploy;
+
+import com.dbdeploy.scripts.ChangeScript;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formatting applied and pending change numbers with a gap every tenth number, so the
+ * output has a range per ten scripts rather than collapsing into one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PrettyPrinterBenchmark {
+
+	@Param({"1000", "10000", "100000"})
+	private int scripts;
+
+	private final PrettyPrinter prettyPrinter = new PrettyPrinter();
+	private List<Long> applied;
+	private AppliedChangeSet appliedSet;
+	private List<ChangeScript> pending;
+
+
+	@Setup
+	public void setUp() {
+		applied = new ArrayList<>(scripts);
+		pending = new ArrayList<>(scripts / 10 + 1);
+
+		for (int i = 1; i <= scripts; i++) {
+			if (i % 10 == 0)
+				pending.add(new ChangeScript(i));
+			else
+				applied.add((long) i);
+		}
+
+		appliedSet = AppliedChangeSet.of(applied);
+	}
+
+
+	@Benchmark
+	public String formatList() {
+		return prettyPrinter.format(applied);
+	}
+
+
+	@Benchmark
+	public String formatChangeSet() {
+		return prettyPrinter.format(appliedSet);
+	}
+
+
+	@Benchmark
+	public String formatChangeScriptList() {
+		return prettyPrinter.formatChangeScriptList(pending);
+	}
+}
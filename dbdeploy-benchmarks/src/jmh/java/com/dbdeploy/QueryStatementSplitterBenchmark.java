@@ -0,0 +1,44 @@
+package com.dbdeploy;
+
+import com.dbdeploy.database.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splitting the content of every script in a repository into statements, line by line with
+ * the normal delimiter type against the lexer of the lexical one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class QueryStatementSplitterBenchmark {
+
+	@Param({"1000", "10000", "100000"})
+	private int scripts;
+
+	@Param({"normal", "lexical"})
+	private DelimiterType delimiterType;
+
+	private final QueryStatementSplitter splitter = new QueryStatementSplitter();
+	private List<String> contents;
+
+
+	@Setup
+	public void setUp() {
+		splitter.setDelimiterType(delimiterType);
+		contents = new ArrayList<>(scripts);
+
+		for (int i = 1; i <= scripts; i++)
+			contents.add(SyntheticRepository.content(i));
+	}
+
+
+	@Benchmark
+	public void split(Blackhole blackhole) {
+		for (String content : contents)
+			blackhole.consume(splitter.split(content));
+	}
+}
@@ -0,0 +1,76 @@
+package com.dbdeploy;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * A directory of generated change scripts shaped like a real repository: numbered files,
+ * a few statements each and an undo section.
+ */
+final class SyntheticRepository implements Closeable {
+	static final String DELIMITER = ";";
+
+	private final Path directory;
+	private final List<String> filenames;
+
+
+	private SyntheticRepository(Path directory, List<String> filenames) {
+		this.directory = directory;
+		this.filenames = filenames;
+	}
+
+
+	static SyntheticRepository create(int scripts) throws IOException {
+		Path directory = Files.createTempDirectory("dbdeploy-benchmark");
+		List<String> filenames = filenames(scripts);
+
+		for (int i = 0; i < scripts; i++)
+			Files.write(directory.resolve(filenames.get(i)), content(i + 1).getBytes(StandardCharsets.UTF_8));
+
+		return new SyntheticRepository(directory, filenames);
+	}
+
+
+	static List<String> filenames(int scripts) {
+		List<String> filenames = new ArrayList<>(scripts);
+
+		for (int i = 1; i <= scripts; i++)
+			filenames.add(String.format("%06d_change_number_%d.sql", i, i));
+
+		return filenames;
+	}
+
+
+	static String content(int id) {
+		return "-- change script " + id + "\n"
+				+ "CREATE TABLE table_" + id + " (\n"
+				+ "  id INTEGER NOT NULL,\n"
+				+ "  name VARCHAR(100)\n"
+				+ ")" + DELIMITER + "\n"
+				+ "INSERT INTO table_" + id + " (id, name) VALUES (1, 'one')" + DELIMITER + "\n"
+				+ "INSERT INTO table_" + id + " (id, name) VALUES (2, 'two; with a delimiter')" + DELIMITER + "\n"
+				+ "UPDATE table_" + id + " SET name = 'three' WHERE id = 2" + DELIMITER + "\n"
+				+ "--//@UNDO\n"
+				+ "DROP TABLE table_" + id + DELIMITER + "\n";
+	}
+
+
+	File getDirectory() {
+		return directory.toFile();
+	}
+
+
+	List<String> getFilenames() {
+		return filenames;
+	}
+
+
+	@Override public void close() throws IOException {
+		for (String filename : filenames)
+			Files.deleteIfExists(directory.resolve(filename));
+
+		Files.deleteIfExists(directory);
+	}
+}
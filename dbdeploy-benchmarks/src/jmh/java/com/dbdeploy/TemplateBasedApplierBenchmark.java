@@ -0,0 +1,64 @@
+package com.dbdeploy;
+
+import com.dbdeploy.appliers.TemplateBasedApplier;
+import com.dbdeploy.database.DelimiterType;
+import com.dbdeploy.scripts.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering the hsql apply template for a whole repository into a discarding writer, with
+ * script content served from the content cache after the first iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TemplateBasedApplierBenchmark {
+
+	@Param({"1000", "10000", "100000"})
+	private int scripts;
+
+	@Param({"false", "true"})
+	private boolean streaming;
+
+	private SyntheticRepository repository;
+	private List<ChangeScript> changeScripts;
+
+
+	@Setup
+	public void setUp() throws IOException {
+		repository = SyntheticRepository.create(scripts);
+		changeScripts = new DirectoryScanner("UTF-8").getChangeScriptsForDirectory(repository.getDirectory());
+		Collections.sort(changeScripts);
+	}
+
+
+	@TearDown
+	public void tearDown() throws IOException {
+		repository.close();
+	}
+
+
+	@Benchmark
+	public void apply() throws IOException {
+		TemplateBasedApplier applier = new TemplateBasedApplier(new DiscardingWriter(), "hsql", "changelog",
+				SyntheticRepository.DELIMITER, DelimiterType.normal, null);
+		applier.setStreaming(streaming);
+		applier.apply(changeScripts);
+	}
+
+
+	private static final class DiscardingWriter extends Writer {
+		@Override public void write(char[] buffer, int offset, int length) {
+		}
+
+		@Override public void flush() {
+		}
+
+		@Override public void close() {
+		}
+	}
+}
@@ -1,27 +1,65 @@
 package com.dbdeploy;
 
 import com.dbdeploy.exceptions.UsageException;
+import com.dbdeploy.log.Log;
+
+import java.io.OutputStreamWriter;
+import java.util.Map;
 
 public class CommandLineTarget {
 
 	public static void main(String[] args) {
 
 		DbDeployCommandLineParser commandLineParser = new DbDeployCommandLineParser();
+		boolean clean = true;
 
 		try {
 			IDbDeploy dbDeploy = commandLineParser.parse(args);
-			dbDeploy.go();
+
+			try {
+				if (commandLineParser.getStatusFormat() != null)
+					printStatus(dbDeploy, commandLineParser.getStatusFormat());
+				else if (commandLineParser.isVerifyChecksums())
+					clean = printChecksumReports(dbDeploy);
+				else
+					dbDeploy.go();
+			}
+			finally {
+				commandLineParser.closeResources();
+			}
 		}
 		catch (UsageException ex) {
+			Log.flush();
 			System.err.println("ERROR: " + ex.getMessage());
 			commandLineParser.printUsage();
 		}
 		catch (Exception ex) {
+			Log.flush();
 			System.err.println("Failed to apply changes: " + ex);
 			ex.printStackTrace();
 			System.exit(2);
 		}
 
-		System.exit(0);
+		Log.flush();
+		System.exit(clean ? 0 : 1);
+	}
+
+	private static void printStatus(IDbDeploy dbDeploy, PlanFormat format) throws Exception {
+		Map<String, DeploymentPlan> plans = dbDeploy.plan();
+
+		Log.flush();
+
+		format.write(plans, new OutputStreamWriter(System.out));
+	}
+
+	private static boolean printChecksumReports(IDbDeploy dbDeploy) throws Exception {
+		Map<String, ChecksumReport> reports = dbDeploy.verify();
+
+		Log.flush();
+
+		for (Map.Entry<String, ChecksumReport> report : reports.entrySet())
+			System.out.println(report.getKey() + ": " + report.getValue());
+
+		return reports.values().stream().allMatch(ChecksumReport::isClean);
 	}
 }
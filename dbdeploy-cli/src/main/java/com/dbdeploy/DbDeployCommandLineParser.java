@@ -2,21 +2,28 @@ package com.dbdeploy;
 
 import com.dbdeploy.database.*;
 import com.dbdeploy.exceptions.UsageException;
+import com.dbdeploy.listener.*;
+import com.dbdeploy.log.*;
 import org.apache.commons.cli.*;
 
 import java.beans.*;
-import java.io.File;
+import java.io.*;
 import java.lang.reflect.Method;
 import java.text.MessageFormat;
-import java.util.Arrays;
+import java.util.*;
 import java.util.function.Function;
 
 import static java.util.Objects.requireNonNull;
 
 class DbDeployCommandLineParser {
 
+	static final File DEFAULT_MANIFEST_DIRECTORY = new File(System.getProperty("user.home"), ".dbdeploy/manifests");
+
 	private final UserInputReader userInputReader;
 	private final Function<File, StrategySelector.Strategy> strategySelector;
+	private final List<Closeable> resources = new ArrayList<>();
+	private PlanFormat statusFormat;
+	private boolean verifyChecksums;
 
 
 	DbDeployCommandLineParser() {
@@ -41,7 +48,7 @@ class DbDeployCommandLineParser {
 
 
 	public IDbDeploy makeDbDeploy(StrategySelector.Strategy strategy, File patches) {
-		System.out.println(MessageFormat.format("strategy: {0}", strategy));
+		Log.info(MessageFormat.format("strategy: {0}", strategy));
 
 		switch (strategy) {
 			case LINEAR:
@@ -50,6 +57,11 @@ class DbDeployCommandLineParser {
 			case TREE:
 				return new DbDeployComposite(Arrays.asList(requireNonNull(patches.listFiles())));
 
+			case RECURSIVE:
+				DbDeploy recursive = new DbDeploy(patches);
+				recursive.setRecursiveScan(true);
+				return recursive;
+
 			case NOT_EXISTS:
 				throw UsageException.of("failed to find directory: {0}", patches.getAbsolutePath());
 
@@ -65,8 +77,13 @@ class DbDeployCommandLineParser {
 						patches.getAbsolutePath());
 
 			case INVALID_TREE:
-				throw UsageException.of("patches sub-directories should contain no directories: {0}",
+				throw UsageException.of("patches sub-directories should contain no directories, unless scanned with --recursive: {0}",
 				                        patches.getAbsolutePath());
+
+			case RECURSIVE_TREE:
+				throw UsageException.of(
+						"patches dir is a tree with a changelog per sub-directory, --recursive would deploy it as one set into one changelog: {0}",
+						patches.getAbsolutePath());
 		}
 
 		throw new IllegalStateException(MessageFormat.format(
@@ -78,21 +95,109 @@ class DbDeployCommandLineParser {
 
 		CommandLine commandLine = new DefaultParser().parse(getOptions(), args);
 
+		if (commandLine.hasOption("loglevel"))
+			Log.setLevel(parseLogLevel(commandLine.getOptionValue("loglevel")));
+
 		final File patches = resolvePatchesDirectory(commandLine);
 
-		final StrategySelector.Strategy strategy = strategySelector.apply(patches);
+		final StrategySelector.Strategy strategy = commandLine.hasOption("recursive")
+				? StrategySelector.recursive(strategySelector.apply(patches))
+				: strategySelector.apply(patches);
 
 		final IDbDeploy dbDeploy = makeDbDeploy(strategy, patches);
 
 		copyValuesFromCommandLineToDbDeployBean(dbDeploy, commandLine);
 
+		verifyChecksums = commandLine.hasOption("verifychecksums");
+
+		if (commandLine.hasOption("status"))
+			statusFormat = parsePlanFormat(commandLine.getOptionValue("format", PlanFormat.text.name()));
+
 		if (commandLine.hasOption("password") && commandLine.getOptionValue("password") == null)
 			dbDeploy.setPassword(userInputReader.read("Password"));
 
+		// last, as nothing closes the recording if parsing fails after it started
+		if (commandLine.hasOption("jfr"))
+			startFlightRecording(dbDeploy, new File(commandLine.getOptionValue("jfr")));
+
 		return dbDeploy;
 	}
 
 
+	private static PlanFormat parsePlanFormat(String value) {
+		try {
+			return PlanFormat.valueOf(value);
+		}
+		catch (IllegalArgumentException e) {
+			throw UsageException.of("unknown status format: {0} (text or json)", value);
+		}
+	}
+
+
+	/**
+	 * How to report the plan when --status was given instead of deploying, otherwise null.
+	 */
+	PlanFormat getStatusFormat() {
+		return statusFormat;
+	}
+
+
+	/**
+	 * Whether --verifychecksums asked for a checksum report instead of a deploy.
+	 */
+	boolean isVerifyChecksums() {
+		return verifyChecksums;
+	}
+
+
+	private static LogLevel parseLogLevel(String value) {
+		try {
+			return LogLevel.valueOf(value);
+		}
+		catch (IllegalArgumentException e) {
+			throw UsageException.of("unknown log level: {0} (quiet, normal or verbose)", value);
+		}
+	}
+
+
+	/**
+	 * The recorder lives in dbdeploy-jfr, which needs Java 11, so it is only loaded when asked for.
+	 */
+	private void startFlightRecording(IDbDeploy dbDeploy, File destination) {
+		try {
+			Object recorder = Class.forName("com.dbdeploy.jfr.JfrRecorder")
+			                       .getConstructor(File.class)
+			                       .newInstance(destination);
+
+			dbDeploy.addListener((DeploymentListener) recorder);
+			resources.add((Closeable) recorder);
+		}
+		catch (ClassNotFoundException | LinkageError e) {
+			throw new UsageException("--jfr needs Java 11 or later and dbdeploy-jfr on the class path", e);
+		}
+		catch (ReflectiveOperationException e) {
+			throw new UsageException("could not start a flight recording: " + e.getCause(), e);
+		}
+	}
+
+
+	/**
+	 * Finishes whatever the parsed options started, such as writing out a flight recording.
+	 */
+	void closeResources() {
+		for (Closeable resource : resources) {
+			try {
+				resource.close();
+			}
+			catch (IOException e) {
+				Log.warn("Failed to close " + resource + ": " + e);
+			}
+		}
+
+		resources.clear();
+	}
+
+
 	private File resolvePatchesDirectory(CommandLine commandLine) {
 		return new File(
 				commandLine.hasOption("scriptdirectory")
@@ -126,6 +231,54 @@ class DbDeployCommandLineParser {
 
 			if (commandLine.hasOption("lineending"))
 				dbDeploy.setLineEnding(LineEnding.valueOf(commandLine.getOptionValue("lineending")));
+
+			if (commandLine.hasOption("batchsize"))
+				dbDeploy.setBatchSize(Integer.parseInt(commandLine.getOptionValue("batchsize")));
+
+			if (commandLine.hasOption("adaptivebatch"))
+				dbDeploy.setAdaptiveBatchSize(true);
+
+			if (commandLine.hasOption("transactiongrouping"))
+				dbDeploy.setTransactionGrouping(TransactionGrouping.valueOf(commandLine.getOptionValue("transactiongrouping")));
+
+			if (commandLine.hasOption("commitinterval"))
+				dbDeploy.setCommitInterval(Integer.parseInt(commandLine.getOptionValue("commitinterval")));
+
+			if (commandLine.hasOption("pipeline"))
+				dbDeploy.setPipelineDepth(Integer.parseInt(commandLine.getOptionValue("pipeline")));
+
+			if (commandLine.hasOption("streamoutput"))
+				dbDeploy.setStreamingOutput(true);
+
+			if (commandLine.hasOption("recordchecksums"))
+				dbDeploy.setChecksums(true);
+
+			if (commandLine.hasOption("deploylock"))
+				dbDeploy.setDeployLock(true);
+
+			if (commandLine.hasOption("locktimeout"))
+				dbDeploy.setLockTimeout(Integer.parseInt(commandLine.getOptionValue("locktimeout")));
+
+			if (commandLine.hasOption("locklease"))
+				dbDeploy.setLockLease(Integer.parseInt(commandLine.getOptionValue("locklease")));
+
+			if (commandLine.hasOption("manifest"))
+				dbDeploy.setScanManifestDirectory(commandLine.getOptionValue("manifest") != null
+						? new File(commandLine.getOptionValue("manifest"))
+						: DEFAULT_MANIFEST_DIRECTORY);
+
+			if (commandLine.hasOption("timingreport"))
+				dbDeploy.addListener(new JsonTimingReport(new File(commandLine.getOptionValue("timingreport"))));
+
+			if (commandLine.hasOption("metricsfile"))
+				dbDeploy.addListener(new DeployMetrics(new File(commandLine.getOptionValue("metricsfile"))));
+
+			if (commandLine.hasOption("parallel")) {
+				if (dbDeploy instanceof DbDeployComposite)
+					((DbDeployComposite) dbDeploy).setParallelism(Integer.parseInt(commandLine.getOptionValue("parallel")));
+				else
+					Log.warn("--parallel only applies to a tree of script directories, ignoring it for a single one");
+			}
 		}
 		catch (Exception e) {
 			throw new RuntimeException(e);
@@ -211,7 +364,7 @@ class DbDeployCommandLineParser {
 
 		options.addOption(Option.builder()
 		                        .hasArg()
-		                        .desc("delimiter type to separate sql statements (row or normal)")
+		                        .desc("delimiter type to separate sql statements (row, normal or lexical)")
 		                        .longOpt("delimitertype")
 		                        .build());
 
@@ -221,6 +374,120 @@ class DbDeployCommandLineParser {
 		                        .longOpt("lineending")
 		                        .build());
 
+		options.addOption(Option.builder()
+		                        .hasArg()
+		                        .desc("send up to this many consecutive INSERT/UPDATE/DELETE/MERGE statements as one jdbc batch (default: off)")
+		                        .longOpt("batchsize")
+		                        .build());
+
+		options.addOption(Option.builder()
+		                        .desc("adapt the jdbc batch size to the database, up to --batchsize")
+		                        .longOpt("adaptivebatch")
+		                        .build());
+
+		options.addOption(Option.builder()
+		                        .hasArg()
+		                        .desc("scripts per transaction when applying direct to db (script, count, deploy - default: script)")
+		                        .longOpt("transactiongrouping")
+		                        .build());
+
+		options.addOption(Option.builder()
+		                        .hasArg()
+		                        .desc("scripts per commit with --transactiongrouping count (default: 100)")
+		                        .longOpt("commitinterval")
+		                        .build());
+
+		options.addOption(Option.builder()
+		                        .hasArg()
+		                        .desc("read and split up to this many statements ahead on a separate thread while applying direct to db (default: off)")
+		                        .longOpt("pipeline")
+		                        .build());
+
+		options.addOption(Option.builder()
+		                        .desc("render output files one script at a time through a large buffer")
+		                        .longOpt("streamoutput")
+		                        .build());
+
+		options.addOption(Option.builder()
+		                        .desc("take turns with other nodes through the changelog's lock table, stopping early once another node brought the database up to date")
+		                        .longOpt("deploylock")
+		                        .build());
+
+		options.addOption(Option.builder()
+		                        .hasArg()
+		                        .desc("seconds to wait for the deploy lock (default: 600)")
+		                        .longOpt("locktimeout")
+		                        .build());
+
+		options.addOption(Option.builder()
+		                        .hasArg()
+		                        .desc("seconds a deploy lock stays taken without a heartbeat; node clocks must agree to well within it (default: 30)")
+		                        .longOpt("locklease")
+		                        .build());
+
+		options.addOption(Option.builder()
+		                        .optionalArg(true)
+		                        .numberOfArgs(1)
+		                        .desc("remember what each script directory held in this directory and only list it again once it changed (default: ~/.dbdeploy/manifests)")
+		                        .longOpt("manifest")
+		                        .build());
+
+		options.addOption(Option.builder()
+		                        .desc("take scripts from every directory below the script directory as one set, listing directories in parallel; not for a tree of script directories")
+		                        .longOpt("recursive")
+		                        .build());
+
+		options.addOption(Option.builder()
+		                        .hasArg()
+		                        .desc("write per-script and per-statement timings as json to this file")
+		                        .longOpt("timingreport")
+		                        .build());
+
+		options.addOption(Option.builder()
+		                        .hasArg()
+		                        .desc("write counters and latency histograms to this file in the prometheus text format")
+		                        .longOpt("metricsfile")
+		                        .build());
+
+		options.addOption(Option.builder()
+		                        .hasArg()
+		                        .desc("record flight recorder events and write the recording to this file (java 11+)")
+		                        .longOpt("jfr")
+		                        .build());
+
+		options.addOption(Option.builder()
+		                        .desc("record a checksum of each applied script and check the applied ones before deploying")
+		                        .longOpt("recordchecksums")
+		                        .build());
+
+		options.addOption(Option.builder()
+		                        .desc("compare applied scripts with their recorded checksums instead of deploying")
+		                        .longOpt("verifychecksums")
+		                        .build());
+
+		options.addOption(Option.builder()
+		                        .desc("print the applied, available and pending changes to standard output instead of deploying")
+		                        .longOpt("status")
+		                        .build());
+
+		options.addOption(Option.builder()
+		                        .hasArg()
+		                        .desc("format of --status output (text, json - default: text)")
+		                        .longOpt("format")
+		                        .build());
+
+		options.addOption(Option.builder()
+		                        .hasArg()
+		                        .desc("progress output on standard error (quiet, normal, verbose - default: normal)")
+		                        .longOpt("loglevel")
+		                        .build());
+
+		options.addOption(Option.builder()
+		                        .hasArg()
+		                        .desc("number of sub-directory trees to deploy at the same time (default: 1)")
+		                        .longOpt("parallel")
+		                        .build());
+
 		return options;
 	}
 }
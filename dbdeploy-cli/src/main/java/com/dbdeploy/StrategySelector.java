@@ -12,7 +12,31 @@ public class StrategySelector implements Function<File, StrategySelector.Strateg
 		LINEAR,
 		MIXED,
 		INVALID_TREE,
-		TREE
+		TREE,
+		RECURSIVE,
+		RECURSIVE_TREE
+	}
+
+
+	/**
+	 * The strategy for scanning a directory recursively, as one set of scripts, given the one
+	 * for scanning it level by level: whatever shape the tree has will do, except a valid tree
+	 * of script directories, which would otherwise be deployed as one changelog rather than
+	 * one per directory.
+	 */
+	static Strategy recursive(Strategy strategy) {
+		switch (strategy) {
+			case LINEAR:
+			case MIXED:
+			case INVALID_TREE:
+				return Strategy.RECURSIVE;
+
+			case TREE:
+				return Strategy.RECURSIVE_TREE;
+
+			default:
+				return strategy;
+		}
 	}
 
 
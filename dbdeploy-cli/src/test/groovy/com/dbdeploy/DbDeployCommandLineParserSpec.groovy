@@ -2,6 +2,7 @@ package com.dbdeploy
 
 import com.dbdeploy.database.*
 import com.dbdeploy.exceptions.UsageException
+import com.dbdeploy.log.*
 import spock.lang.*
 
 import static com.dbdeploy.StrategySelector.Strategy
@@ -21,9 +22,10 @@ class DbDeployCommandLineParserSpec extends Specification {
 			dbDeploy in expected
 
 		where:
-			strategy        || expected
-			Strategy.LINEAR || DbDeploy
-			Strategy.TREE   || DbDeployComposite
+			strategy                || expected
+			Strategy.LINEAR    || DbDeploy
+			Strategy.TREE      || DbDeployComposite
+			Strategy.RECURSIVE || DbDeploy
 
 			expectedSuccess = expected.simpleName
 	}
@@ -38,12 +40,13 @@ class DbDeployCommandLineParserSpec extends Specification {
 			thrown expected
 
 		where:
-			strategy               || expected
-			Strategy.NOT_EXISTS    || UsageException
-			Strategy.NOT_DIRECTORY || UsageException
-			Strategy.EMPTY         || UsageException
-			Strategy.MIXED         || UsageException
-			Strategy.INVALID_TREE  || UsageException
+			strategy                || expected
+			Strategy.NOT_EXISTS     || UsageException
+			Strategy.NOT_DIRECTORY  || UsageException
+			Strategy.EMPTY          || UsageException
+			Strategy.MIXED          || UsageException
+			Strategy.INVALID_TREE   || UsageException
+			Strategy.RECURSIVE_TREE || UsageException
 
 			expectedError = expected.simpleName
 	}
@@ -128,6 +131,135 @@ class DbDeployCommandLineParserSpec extends Specification {
 	}
 
 
+	def 'can parse batch options'() {
+		when:
+			final dbDeploy = parser.parse('--batchsize 500 --adaptivebatch'.split(' ')) as DbDeploy
+
+		then:
+			dbDeploy.batchSize == 500
+			dbDeploy.adaptiveBatchSize
+	}
+
+
+	def 'can parse transaction grouping options'() {
+		when:
+			final dbDeploy = parser.parse('--transactiongrouping count --commitinterval 25'.split(' ')) as DbDeploy
+
+		then:
+			dbDeploy.transactionGrouping == TransactionGrouping.count
+			dbDeploy.commitInterval == 25
+	}
+
+
+	def 'can parse recursive scanning'() {
+		when:
+			final dbDeploy = parser.parse('--recursive'.split(' ')) as DbDeploy
+
+		then:
+			dbDeploy.recursiveScan
+	}
+
+
+	def 'can parse deploy lock options'() {
+		when:
+			final dbDeploy = parser.parse('--deploylock --locktimeout 120 --locklease 45'.split(' ')) as DbDeploy
+
+		then:
+			dbDeploy.deployLock
+			dbDeploy.lockTimeout == 120
+			dbDeploy.lockLease == 45
+	}
+
+
+	def 'can parse pipeline depth'() {
+		when:
+			final dbDeploy = parser.parse('--pipeline 500'.split(' ')) as DbDeploy
+
+		then:
+			dbDeploy.pipelineDepth == 500
+	}
+
+
+	def 'can parse streaming output flag'() {
+		when:
+			final dbDeploy = parser.parse('-o out.sql --streamoutput'.split(' ')) as DbDeploy
+
+		then:
+			dbDeploy.streamingOutput
+	}
+
+
+	def 'can parse parallelism for a tree of script directories'() {
+		given:
+			parser = new DbDeployCommandLineParser(userInputReader, { Strategy.TREE })
+
+		when:
+			final dbDeploy = parser.parse('--parallel 4 -s src/test'.split(' ')) as DbDeployComposite
+
+		then:
+			dbDeploy.parallelism == 4
+	}
+
+
+	def 'should ignore parallelism for a single script directory'() {
+		given:
+			parser = new DbDeployCommandLineParser(userInputReader, { Strategy.LINEAR })
+
+		expect:
+			parser.parse('--parallel 4 -s src/test'.split(' ')) instanceof DbDeploy
+	}
+
+
+	def 'can parse scan manifest directory'() {
+		when:
+			final dbDeploy = parser.parse(args.split(' ')) as DbDeploy
+
+		then:
+			dbDeploy.scanManifestDirectory == expected
+
+		where:
+			args                     | expected
+			'--manifest cache'       | new File('cache')
+			'--manifest -o out.sql'  | DbDeployCommandLineParser.DEFAULT_MANIFEST_DIRECTORY
+	}
+
+
+	def 'should only report status when asked to'() {
+		when:
+			parser.parse(args.split(' '))
+
+		then:
+			parser.statusFormat == expected
+
+		where:
+			args                     | expected
+			'-o out.sql'             | null
+			'--status'               | PlanFormat.text
+			'--status --format json' | PlanFormat.json
+	}
+
+
+	def 'can parse log level'() {
+		when:
+			parser.parse('--loglevel quiet'.split(' '))
+
+		then:
+			Log.level == LogLevel.quiet
+
+		cleanup:
+			Log.level = LogLevel.normal
+	}
+
+
+	def 'should reject an unknown log level'() {
+		when:
+			parser.parse('--loglevel loud'.split(' '))
+
+		then:
+			thrown(UsageException)
+	}
+
+
 	def 'should prompt from stdin for password if password param supplied with no arg'() {
 		when:
 			final dbDeploy = parser.parse(['-P'] as String[]) as DbDeploy
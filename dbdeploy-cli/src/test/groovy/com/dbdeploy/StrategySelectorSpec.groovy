@@ -82,4 +82,21 @@ class StrategySelectorSpec extends Specification {
 			expected = testData.expected
 			patchesDir = testData.patchesDir as File
 	}
+
+
+	@Unroll
+	def 'recursive scanning turns #flat into #expected'() {
+		expect:
+			StrategySelector.recursive(flat) == expected
+
+		where:
+			flat                   || expected
+			Strategy.NOT_EXISTS    || Strategy.NOT_EXISTS
+			Strategy.NOT_DIRECTORY || Strategy.NOT_DIRECTORY
+			Strategy.EMPTY         || Strategy.EMPTY
+			Strategy.LINEAR        || Strategy.RECURSIVE
+			Strategy.MIXED         || Strategy.RECURSIVE
+			Strategy.INVALID_TREE  || Strategy.RECURSIVE
+			Strategy.TREE          || Strategy.RECURSIVE_TREE
+	}
 }
@@ -0,0 +1,190 @@
+package com.dbdeploy;
+
+import java.util.*;
+
+/**
+ * Immutable, ascending set of change numbers stored as closed ranges of primitive longs.
+ * A changelog that was applied in order is typically a handful of ranges, however many
+ * rows it has.
+ */
+public final class AppliedChangeSet {
+	private static final AppliedChangeSet EMPTY = new AppliedChangeSet(new long[0], new long[0], 0, 0);
+
+	private final long[] starts;
+	private final long[] ends;
+	private final int rangeCount;
+	private final long size;
+
+
+	private AppliedChangeSet(long[] starts, long[] ends, int rangeCount, long size) {
+		this.starts = starts;
+		this.ends = ends;
+		this.rangeCount = rangeCount;
+		this.size = size;
+	}
+
+
+	public static AppliedChangeSet of(long... changeNumbers) {
+		long[] sorted = changeNumbers.clone();
+		Arrays.sort(sorted);
+
+		Builder builder = new Builder();
+
+		for (long changeNumber : sorted)
+			builder.add(changeNumber);
+
+		return builder.build();
+	}
+
+
+	public static AppliedChangeSet of(Collection<Long> changeNumbers) {
+		long[] numbers = new long[changeNumbers.size()];
+		int i = 0;
+
+		for (Long changeNumber : changeNumbers)
+			numbers[i++] = changeNumber;
+
+		return of(numbers);
+	}
+
+
+	public static AppliedChangeSet empty() {
+		return EMPTY;
+	}
+
+
+	public int getRangeCount() {
+		return rangeCount;
+	}
+
+
+	public long getRangeStart(int range) {
+		return starts[range];
+	}
+
+
+	public long getRangeEnd(int range) {
+		return ends[range];
+	}
+
+
+	public long size() {
+		return size;
+	}
+
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+
+	public boolean contains(long changeNumber) {
+		int low = 0;
+		int high = rangeCount - 1;
+
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+
+			if (ends[middle] < changeNumber)
+				low = middle + 1;
+			else if (starts[middle] > changeNumber)
+				high = middle - 1;
+			else
+				return true;
+		}
+
+		return false;
+	}
+
+
+	public List<Long> toList() {
+		List<Long> result = new ArrayList<>((int) Math.min(size, Integer.MAX_VALUE));
+
+		for (int range = 0; range < rangeCount; range++)
+			for (long number = starts[range]; number <= ends[range]; number++)
+				result.add(number);
+
+		return result;
+	}
+
+
+	@Override public boolean equals(Object o) {
+		if (!(o instanceof AppliedChangeSet))
+			return false;
+
+		AppliedChangeSet other = (AppliedChangeSet) o;
+
+		if (rangeCount != other.rangeCount)
+			return false;
+
+		for (int range = 0; range < rangeCount; range++)
+			if (starts[range] != other.starts[range] || ends[range] != other.ends[range])
+				return false;
+
+		return true;
+	}
+
+
+	@Override public int hashCode() {
+		int result = rangeCount;
+
+		for (int range = 0; range < rangeCount; range++)
+			result = 31 * (31 * result + Long.hashCode(starts[range])) + Long.hashCode(ends[range]);
+
+		return result;
+	}
+
+
+	@Override public String toString() {
+		return new PrettyPrinter().format(this);
+	}
+
+
+	/**
+	 * Collects change numbers that arrive in ascending order, such as rows read from an
+	 * ordered changelog query. Repeated numbers are ignored.
+	 */
+	public static final class Builder {
+		private long[] starts = new long[8];
+		private long[] ends = new long[8];
+		private int rangeCount;
+		private long size;
+
+		public Builder add(long changeNumber) {
+			if (rangeCount > 0) {
+				long last = ends[rangeCount - 1];
+
+				if (changeNumber < last)
+					throw new IllegalArgumentException(
+							"change numbers must be added in ascending order: " + changeNumber + " after " + last);
+
+				if (changeNumber == last)
+					return this;
+
+				if (changeNumber == last + 1) {
+					ends[rangeCount - 1] = changeNumber;
+					size++;
+					return this;
+				}
+			}
+
+			if (rangeCount == starts.length) {
+				starts = Arrays.copyOf(starts, rangeCount * 2);
+				ends = Arrays.copyOf(ends, rangeCount * 2);
+			}
+
+			starts[rangeCount] = changeNumber;
+			ends[rangeCount] = changeNumber;
+			rangeCount++;
+			size++;
+			return this;
+		}
+
+		public AppliedChangeSet build() {
+			if (rangeCount == 0)
+				return EMPTY;
+
+			return new AppliedChangeSet(Arrays.copyOf(starts, rangeCount), Arrays.copyOf(ends, rangeCount), rangeCount, size);
+		}
+	}
+}
@@ -4,4 +4,8 @@ import java.util.List;
 
 public interface AppliedChangesProvider {
 	List<Long> getAppliedChanges();
+
+	default AppliedChangeSet getAppliedChangeSet() {
+		return AppliedChangeSet.of(getAppliedChanges());
+	}
 }
@@ -0,0 +1,105 @@
+package com.dbdeploy;
+
+import com.dbdeploy.scripts.ChangeScript;
+
+import java.util.*;
+
+/**
+ * Result of comparing the applied change scripts on disk with the checksums recorded for
+ * them in the changelog. Changes applied without a checksum cannot be checked and are only
+ * counted.
+ */
+public class ChecksumReport {
+	private final int verified;
+	private final List<Drift> modified;
+	private final List<Long> missing;
+	private final int unrecorded;
+
+
+	public ChecksumReport(int verified, List<Drift> modified, List<Long> missing, int unrecorded) {
+		this.verified = verified;
+		this.modified = Collections.unmodifiableList(new ArrayList<>(modified));
+		this.missing = Collections.unmodifiableList(new ArrayList<>(missing));
+		this.unrecorded = unrecorded;
+	}
+
+
+	/**
+	 * Number of applied scripts whose checksum was compared, matching or not.
+	 */
+	public int getVerified() {
+		return verified;
+	}
+
+
+	/**
+	 * Applied scripts that changed on disk since they were applied.
+	 */
+	public List<Drift> getModified() {
+		return modified;
+	}
+
+
+	/**
+	 * Changes recorded with a checksum whose script is no longer there.
+	 */
+	public List<Long> getMissing() {
+		return missing;
+	}
+
+
+	public int getUnrecorded() {
+		return unrecorded;
+	}
+
+
+	public boolean isClean() {
+		return modified.isEmpty() && missing.isEmpty();
+	}
+
+
+	@Override public String toString() {
+		StringBuilder text = new StringBuilder()
+				.append(verified).append(" verified, ")
+				.append(modified.size()).append(" modified, ")
+				.append(missing.size()).append(" missing, ")
+				.append(unrecorded).append(" without checksum");
+
+		for (Drift drift : modified)
+			text.append("\n  modified: ").append(drift);
+
+		for (Long id : missing)
+			text.append("\n  missing:  #").append(id);
+
+		return text.toString();
+	}
+
+
+	public static final class Drift {
+		private final ChangeScript script;
+		private final String recorded;
+		private final String actual;
+
+		public Drift(ChangeScript script, String recorded, String actual) {
+			this.script = script;
+			this.recorded = recorded;
+			this.actual = actual;
+		}
+
+		public ChangeScript getScript() {
+			return script;
+		}
+
+		public String getRecorded() {
+			return recorded;
+		}
+
+		public String getActual() {
+			return actual;
+		}
+
+		@Override public String toString() {
+			return script + " (recorded " + recorded + ", now " + actual + ")";
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package com.dbdeploy;
+
+import com.dbdeploy.exceptions.DbDeployException;
+import com.dbdeploy.scripts.ChangeScript;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+/**
+ * Hashes every applied script that has a recorded checksum on a fork-join pool and compares
+ * the results with the changelog. Reading the files dominates, so the pool has
+ * {@link ChangeScript#READ_PARALLELISM} threads.
+ */
+public class ChecksumVerifier {
+	private final int parallelism;
+
+
+	public ChecksumVerifier() {
+		this(ChangeScript.READ_PARALLELISM);
+	}
+
+
+	public ChecksumVerifier(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
+
+	public ChecksumReport verify(List<ChangeScript> scripts, Map<Long, String> recorded) {
+		Map<Long, ChangeScript> scriptsById = new HashMap<>();
+
+		for (ChangeScript script : scripts)
+			scriptsById.put(script.getId(), script);
+
+		List<ChangeScript> toVerify = new ArrayList<>();
+		List<Long> missing = new ArrayList<>();
+		int unrecorded = 0;
+
+		for (Map.Entry<Long, String> entry : recorded.entrySet()) {
+			ChangeScript script = scriptsById.get(entry.getKey());
+
+			if (entry.getValue() == null)
+				unrecorded++;
+			else if (script == null)
+				missing.add(entry.getKey());
+			else
+				toVerify.add(script);
+		}
+
+		return new ChecksumReport(toVerify.size(), findModified(toVerify, recorded), missing, unrecorded);
+	}
+
+
+	private List<ChecksumReport.Drift> findModified(List<ChangeScript> toVerify, Map<Long, String> recorded) {
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+		try {
+			// a parallel stream started from a task runs on that task's pool
+			return pool.submit(() -> toVerify.parallelStream()
+			                                 .map(script -> drift(script, recorded.get(script.getId())))
+			                                 .filter(Objects::nonNull)
+			                                 .collect(Collectors.toList()))
+			           .get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DbDeployException("Interrupted while verifying checksums", e);
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+
+			throw new DbDeployException("Failed to verify checksums", e.getCause());
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+
+	private static ChecksumReport.Drift drift(ChangeScript script, String recorded) {
+		String actual = script.getChecksum();
+		return recorded.equalsIgnoreCase(actual) ? null : new ChecksumReport.Drift(script, recorded, actual);
+	}
+}
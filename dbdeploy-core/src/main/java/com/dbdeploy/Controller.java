@@ -1,6 +1,8 @@
 package com.dbdeploy;
 
 import com.dbdeploy.exceptions.DbDeployException;
+import com.dbdeploy.listener.DeploymentListener;
+import com.dbdeploy.log.Log;
 import com.dbdeploy.scripts.ChangeScript;
 
 import java.io.IOException;
@@ -14,6 +16,7 @@ public class Controller {
 	private final ChangeScriptApplier undoScriptApplier;
 
 	private final PrettyPrinter prettyPrinter = new PrettyPrinter();
+	private DeploymentListener listener = DeploymentListener.NONE;
 
 	public Controller(AvailableChangeScriptsProvider availableChangeScriptsProvider,
 	                  AppliedChangesProvider appliedChangesProvider,
@@ -28,12 +31,12 @@ public class Controller {
 		if (lastChangeToApply != Long.MAX_VALUE)
 			info("Only applying changes up and including change script #" + lastChangeToApply);
 
-		List<ChangeScript> scripts = availableChangeScriptsProvider.getAvailableChangeScripts();
-		List<Long> applied = appliedChangesProvider.getAppliedChanges();
-		List<ChangeScript> toApply = identifyChangesToApply(lastChangeToApply, scripts, applied);
+		DeploymentPlan plan = plan(lastChangeToApply);
 
-		logStatus(scripts, applied, toApply);
+		logStatus(plan);
+		listener.planComputed(plan.getAvailable(), plan.getApplied(), plan.getPending());
 
+		List<ChangeScript> toApply = new ArrayList<>(plan.getPending());
 		changeScriptApplier.apply(Collections.unmodifiableList(toApply));
 
 		if (undoScriptApplier != null) {
@@ -43,20 +46,54 @@ public class Controller {
 		}
 	}
 
-	private void logStatus(List<ChangeScript> scripts, List<Long> applied, List<ChangeScript> toApply) {
-		info("Changes currently applied to database:\n  " + prettyPrinter.format(applied));
-		info("Scripts available:\n  " + prettyPrinter.formatChangeScriptList(scripts));
-		info("To be applied:\n  " + prettyPrinter.formatChangeScriptList(toApply));
+	/**
+	 * Works out what {@link #processChangeScripts(Long)} would apply, from the script names and
+	 * the change log only.
+	 */
+	public DeploymentPlan plan(Long lastChangeToApply) {
+		List<ChangeScript> scripts = availableChangeScriptsProvider.getAvailableChangeScripts();
+		AppliedChangeSet applied = readChangeLog();
+
+		return new DeploymentPlan(scripts, applied, identifyChangesToApply(lastChangeToApply, scripts, applied));
+	}
+
+	private AppliedChangeSet readChangeLog() {
+		listener.changeLogReadStarted();
+		long start = System.nanoTime();
+		AppliedChangeSet applied = appliedChangesProvider.getAppliedChangeSet();
+		listener.changeLogReadFinished(applied.size(), System.nanoTime() - start);
+		return applied;
 	}
 
-	private List<ChangeScript> identifyChangesToApply(Long lastChangeToApply, List<ChangeScript> scripts, List<Long> applied) {
+	public void setListener(DeploymentListener listener) {
+		this.listener = listener;
+	}
+
+	private void logStatus(DeploymentPlan plan) {
+		info("Changes currently applied to database:\n  " + prettyPrinter.format(plan.getApplied()));
+		info("Scripts available:\n  " + prettyPrinter.formatChangeScriptList(plan.getAvailable()));
+		info("To be applied:\n  " + prettyPrinter.formatChangeScriptList(plan.getPending()));
+	}
+
+	/**
+	 * Both {@code scripts} and the ranges of {@code applied} are in ascending order, so a
+	 * single merge pass finds every script that has not been applied yet.
+	 */
+	static List<ChangeScript> identifyChangesToApply(long lastChangeToApply, List<ChangeScript> scripts, AppliedChangeSet applied) {
 		List<ChangeScript> result = new ArrayList<>();
+		int rangeCount = applied.getRangeCount();
+		int range = 0;
 
 		for (ChangeScript script : scripts) {
-			if (script.getId() > lastChangeToApply)
+			long id = script.getId();
+
+			if (id > lastChangeToApply)
 				break;
 
-			if (!applied.contains(script.getId()))
+			while (range < rangeCount && applied.getRangeEnd(range) < id)
+				range++;
+
+			if (range == rangeCount || id < applied.getRangeStart(range))
 				result.add(script);
 		}
 
@@ -64,6 +101,6 @@ public class Controller {
 	}
 
 	private void info(String string) {
-		System.err.println(string);
+		Log.info(string);
 	}
 }
@@ -3,10 +3,14 @@ package com.dbdeploy;
 import com.dbdeploy.appliers.*;
 import com.dbdeploy.database.*;
 import com.dbdeploy.database.changelog.*;
-import com.dbdeploy.exceptions.UsageException;
+import com.dbdeploy.exceptions.*;
+import com.dbdeploy.listener.*;
+import com.dbdeploy.log.Log;
 import com.dbdeploy.scripts.*;
 
 import java.io.*;
+import java.nio.charset.Charset;
+import java.util.*;
 
 public class DbDeploy implements IDbDeploy {
 	private String url;
@@ -24,6 +28,21 @@ public class DbDeploy implements IDbDeploy {
 	private String delimiter = ";";
 	private DelimiterType delimiterType = DelimiterType.normal;
 	private File templatedir;
+	private int batchSize;
+	private boolean adaptiveBatchSize;
+	private TransactionGrouping transactionGrouping = TransactionGrouping.script;
+	private int commitInterval = 100;
+	private int pipelineDepth;
+	private ConnectionSource connectionSource;
+	private boolean streamingOutput;
+	private File scanManifestDirectory;
+	private boolean recursiveScan;
+	private boolean checksums;
+	private boolean deployLock;
+	private int lockTimeout = 600;
+	private int lockLease = 30;
+	long lockPollMillis = 1000;
+	private final DeploymentListeners listeners = new DeploymentListeners();
 
 
 	public DbDeploy(File scriptdirectory) {
@@ -82,46 +101,207 @@ public class DbDeploy implements IDbDeploy {
 	}
 
 	@Override public void go() throws Exception {
-		System.err.println(getWelcomeString());
+		Log.info(getWelcomeString());
 
+		try {
+			validate();
+
+			Class.forName(driver);
+
+			deployWithListeners();
+		}
+		finally {
+			Log.verbose(ChangeScriptContentCache.shared().toString());
+			Log.flush();
+		}
+	}
+
+
+	@Override public Map<String, DeploymentPlan> plan() throws Exception {
 		validate();
 
 		Class.forName(driver);
 
-		QueryExecuter queryExecuter = new QueryExecuter(url, userid, password);
+		try (QueryExecuter queryExecuter = new QueryExecuter(getConnectionSource(), userid)) {
+			DatabaseSchemaVersionManager databaseSchemaVersionManager = new DatabaseSchemaVersionManager(
+					queryExecuter, changeLogTableName);
+
+			ChangeScriptRepository changeScriptRepository = new ChangeScriptRepository(
+					newDirectoryScanner().getChangeScriptsForDirectory(scriptdirectory));
+
+			Controller controller = new Controller(changeScriptRepository, databaseSchemaVersionManager, null, null);
+
+			return Collections.singletonMap(changeLogTableName, controller.plan(lastChangeToApply));
+		}
+	}
+
+
+	@Override public Map<String, ChecksumReport> verify() throws Exception {
+		validate();
+
+		Class.forName(driver);
+
+		try (QueryExecuter queryExecuter = new QueryExecuter(getConnectionSource(), userid)) {
+			DatabaseSchemaVersionManager databaseSchemaVersionManager = new DatabaseSchemaVersionManager(
+					queryExecuter, changeLogTableName);
+
+			ChangeScriptRepository changeScriptRepository = new ChangeScriptRepository(
+					newDirectoryScanner().getChangeScriptsForDirectory(scriptdirectory));
+
+			ChecksumReport report = new ChecksumVerifier().verify(
+					changeScriptRepository.getAvailableChangeScripts(), databaseSchemaVersionManager.getAppliedChecksums());
+
+			return Collections.singletonMap(changeLogTableName, report);
+		}
+	}
+
+
+	private void deployWithListeners() throws Exception {
+		listeners.deployStarted(changeLogTableName);
+		long start = System.nanoTime();
+		Throwable failure = null;
+
+		try {
+			QueryExecuter queryExecuter = new QueryExecuter(getConnectionSource(), userid);
+
+			try {
+				deploy(queryExecuter);
+			}
+			finally {
+				queryExecuter.close();
+			}
+		}
+		catch (Exception | Error e) {
+			failure = e;
+			throw e;
+		}
+		finally {
+			listeners.deployFinished(changeLogTableName, System.nanoTime() - start, failure);
+		}
+	}
+
+
+	private void deploy(QueryExecuter queryExecuter) throws Exception {
 
 		DatabaseSchemaVersionManager databaseSchemaVersionManager = new DatabaseSchemaVersionManager(
 				queryExecuter, changeLogTableName);
 
-		ChangeScriptRepository changeScriptRepository = new ChangeScriptRepository(
-				new DirectoryScanner(encoding).getChangeScriptsForDirectory(scriptdirectory));
+		listeners.scanStarted(scriptdirectory);
+		long scanStart = System.nanoTime();
+		List<ChangeScript> scanned = newDirectoryScanner().getChangeScriptsForDirectory(scriptdirectory);
+		listeners.scanFinished(scriptdirectory, scanned.size(), System.nanoTime() - scanStart);
+
+		ChangeScriptRepository changeScriptRepository = new ChangeScriptRepository(scanned);
+
+		if (checksums) {
+			ChecksumReport report = new ChecksumVerifier().verify(
+					changeScriptRepository.getAvailableChangeScripts(), databaseSchemaVersionManager.getAppliedChecksums());
+
+			if (!report.isClean())
+				throw new ChecksumMismatchException(report);
+
+			databaseSchemaVersionManager.setChecksums(true);
+		}
 
 		ChangeScriptApplier doScriptApplier;
+		DirectToDbApplier directToDbApplier = null;
 
 		if (outputfile != null) {
-			doScriptApplier = new TemplateBasedApplier(
-					new PrintWriter(outputfile, encoding), dbms,
+			TemplateBasedApplier templateBasedApplier = new TemplateBasedApplier(
+					openOutput(outputfile, Charset.forName(encoding)), dbms,
 					changeLogTableName, delimiter, delimiterType, getTemplatedir());
+			templateBasedApplier.setStreaming(streamingOutput);
+			templateBasedApplier.setChecksums(checksums);
+			templateBasedApplier.setListener(listeners);
+			doScriptApplier = templateBasedApplier;
 		}
 		else {
 			QueryStatementSplitter splitter = new QueryStatementSplitter();
 			splitter.setDelimiter(getDelimiter());
 			splitter.setDelimiterType(getDelimiterType());
 			splitter.setOutputLineEnding(lineEnding);
-			doScriptApplier = new DirectToDbApplier(queryExecuter, databaseSchemaVersionManager, splitter);
+			directToDbApplier = new DirectToDbApplier(queryExecuter, databaseSchemaVersionManager, splitter);
+			directToDbApplier.setBatchSize(batchSize);
+			directToDbApplier.setAdaptiveBatchSize(adaptiveBatchSize);
+			directToDbApplier.setTransactionGrouping(transactionGrouping);
+			directToDbApplier.setCommitInterval(commitInterval);
+			directToDbApplier.setPipelineDepth(pipelineDepth);
+			directToDbApplier.setListener(listeners);
+			doScriptApplier = directToDbApplier;
 		}
 
 		ChangeScriptApplier undoScriptApplier = null;
 
-		if (undoOutputfile != null)
-			undoScriptApplier = new UndoTemplateBasedApplier(
-					new PrintWriter(undoOutputfile), dbms, changeLogTableName, delimiter, delimiterType, templatedir);
+		if (undoOutputfile != null) {
+			TemplateBasedApplier templateBasedApplier = new UndoTemplateBasedApplier(
+					openOutput(undoOutputfile, Charset.defaultCharset()), dbms,
+					changeLogTableName, delimiter, delimiterType, templatedir);
+			templateBasedApplier.setStreaming(streamingOutput);
+			templateBasedApplier.setListener(listeners);
+			undoScriptApplier = templateBasedApplier;
+		}
 
 		Controller controller = new Controller(changeScriptRepository, databaseSchemaVersionManager, doScriptApplier, undoScriptApplier);
+		controller.setListener(listeners);
+
+		if (!deployLock || outputfile != null) {
+			controller.processChangeScripts(lastChangeToApply);
+			return;
+		}
+
+		try (DeployLock lock = databaseSchemaVersionManager.newDeployLock(getConnectionSource(), lockLease * 1000L)) {
+			if (acquireUnlessUpToDate(lock, controller, databaseSchemaVersionManager.getLockTableName())) {
+				directToDbApplier.setDeployLock(lock);
+				controller.processChangeScripts(lastChangeToApply);
+			}
+		}
+	}
+
+
+	/**
+	 * Waits for the deploy lock, unless whoever holds it brings the database up to date first:
+	 * then there is nothing left to do and the lock is never taken.
+	 */
+	private boolean acquireUnlessUpToDate(DeployLock lock, Controller controller, String lockTableName)
+			throws InterruptedException {
+		long deadline = System.nanoTime() + lockTimeout * 1_000_000_000L;
+		boolean waiting = false;
+
+		while (true) {
+			if (controller.plan(lastChangeToApply).isUpToDate()) {
+				Log.info("Database is already up to date");
+				return false;
+			}
+
+			if (lock.tryAcquire())
+				return true;
+
+			if (System.nanoTime() - deadline > 0)
+				throw new SchemaVersionTrackingException(
+						"Gave up waiting for the deploy lock in " + lockTableName + " after " + lockTimeout + " seconds");
+
+			if (!waiting) {
+				Log.info("Waiting for another deploy holding the lock in " + lockTableName + "...");
+				waiting = true;
+			}
 
-		controller.processChangeScripts(lastChangeToApply);
+			Thread.sleep(lockPollMillis);
+		}
+	}
 
-		queryExecuter.close();
+
+	private DirectoryScanner newDirectoryScanner() {
+		DirectoryScanner scanner = new DirectoryScanner(encoding);
+		scanner.setManifestDirectory(scanManifestDirectory);
+		scanner.setRecursive(recursiveScan);
+		return scanner;
+	}
+
+
+	private Writer openOutput(File file, Charset charset) throws IOException {
+		return streamingOutput
+				? TemplateBasedApplier.openStreamingWriter(file, charset)
+				: new PrintWriter(file, charset.name());
 	}
 
 
@@ -210,6 +390,18 @@ public class DbDeploy implements IDbDeploy {
 		this.delimiterType = delimiterType;
 	}
 
+	/**
+	 * Byte budget of the script content cache shared by every deploy in this JVM; static, as
+	 * resizing it affects every other instance too.
+	 */
+	public static void setContentCacheSize(long bytes) {
+		ChangeScriptContentCache.shared().setMaxBytes(bytes);
+	}
+
+	public static long getContentCacheSize() {
+		return ChangeScriptContentCache.shared().getMaxBytes();
+	}
+
 	public String getWelcomeString() {
 		String version = getClass().getPackage().getImplementationVersion();
 		return "dbdeploy " + version;
@@ -222,4 +414,143 @@ public class DbDeploy implements IDbDeploy {
 	public LineEnding getLineEnding() {
 		return lineEnding;
 	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	@Override public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public boolean isAdaptiveBatchSize() {
+		return adaptiveBatchSize;
+	}
+
+	@Override public void setAdaptiveBatchSize(boolean adaptiveBatchSize) {
+		this.adaptiveBatchSize = adaptiveBatchSize;
+	}
+
+	public TransactionGrouping getTransactionGrouping() {
+		return transactionGrouping;
+	}
+
+	@Override public void setTransactionGrouping(TransactionGrouping transactionGrouping) {
+		this.transactionGrouping = transactionGrouping;
+	}
+
+	public int getCommitInterval() {
+		return commitInterval;
+	}
+
+	@Override public void setCommitInterval(int commitInterval) {
+		this.commitInterval = commitInterval;
+	}
+
+	public int getPipelineDepth() {
+		return pipelineDepth;
+	}
+
+	/**
+	 * Statements to read and split ahead of the one executing when applying directly, see
+	 * {@link DirectToDbApplier#setPipelineDepth}. 0, the default, turns the pipeline off.
+	 */
+	@Override public void setPipelineDepth(int pipelineDepth) {
+		this.pipelineDepth = pipelineDepth;
+	}
+
+	/**
+	 * Connection source used instead of opening one connection per {@link #go()} from
+	 * url, userid and password.
+	 */
+	public ConnectionSource getConnectionSource() {
+		return connectionSource != null
+				? connectionSource
+				: new DriverManagerConnectionSource(url, userid, password);
+	}
+
+	@Override public void setConnectionSource(ConnectionSource connectionSource) {
+		this.connectionSource = connectionSource;
+	}
+
+	public boolean isStreamingOutput() {
+		return streamingOutput;
+	}
+
+	@Override public void setStreamingOutput(boolean streamingOutput) {
+		this.streamingOutput = streamingOutput;
+	}
+
+	public File getScanManifestDirectory() {
+		return scanManifestDirectory;
+	}
+
+	@Override public void setScanManifestDirectory(File scanManifestDirectory) {
+		this.scanManifestDirectory = scanManifestDirectory;
+	}
+
+	public boolean isRecursiveScan() {
+		return recursiveScan;
+	}
+
+	/**
+	 * Whether the scripts of every directory below the script directory belong to it too,
+	 * see {@link DirectoryScanner#setRecursive}.
+	 */
+	@Override public void setRecursiveScan(boolean recursiveScan) {
+		this.recursiveScan = recursiveScan;
+	}
+
+	public boolean isChecksums() {
+		return checksums;
+	}
+
+	/**
+	 * Record a checksum of every script applied and, before applying anything, check the
+	 * scripts already applied with one against theirs.
+	 */
+	@Override public void setChecksums(boolean checksums) {
+		this.checksums = checksums;
+	}
+
+	public boolean isDeployLock() {
+		return deployLock;
+	}
+
+	/**
+	 * Take the lock in the changelog's lock table before applying scripts direct to the
+	 * database, so that nodes deploying at the same time take turns; a node that finds the
+	 * database up to date while waiting stops there.
+	 */
+	@Override public void setDeployLock(boolean deployLock) {
+		this.deployLock = deployLock;
+	}
+
+	public int getLockTimeout() {
+		return lockTimeout;
+	}
+
+	/**
+	 * Seconds to wait for the deploy lock before giving up (default 600).
+	 */
+	@Override public void setLockTimeout(int lockTimeout) {
+		this.lockTimeout = lockTimeout;
+	}
+
+	public int getLockLease() {
+		return lockLease;
+	}
+
+	/**
+	 * Seconds a deploy lock stays taken without a heartbeat (default 30), which is how long a
+	 * crashed node keeps the others waiting. The clocks of the deploying nodes have to agree
+	 * to well within a lease, see {@link DeployLock}.
+	 */
+	@Override public void setLockLease(int lockLease) {
+		this.lockLease = lockLease;
+	}
+
+	@Override public void addListener(DeploymentListener listener) {
+		listeners.add(listener);
+	}
 }
@@ -1,21 +1,65 @@
 package com.dbdeploy;
 
 import com.dbdeploy.database.*;
+import com.dbdeploy.database.changelog.*;
+import com.dbdeploy.exceptions.*;
+import com.dbdeploy.listener.DeploymentListener;
+import com.dbdeploy.log.Log;
 
 import java.io.File;
+import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.*;
 
 public class DbDeployComposite implements IDbDeploy {
 
-	private final Iterable<IDbDeploy> values;
+	private final Map<String, IDbDeploy> values;
+	private int parallelism = 1;
+	private boolean deployLock;
+	private File outputfile;
+	private String url;
+	private String userid;
+	private String password;
+	private ConnectionSource connectionSource;
+	private DeploymentResult result;
 
 
 	public DbDeployComposite(Iterable<File> scriptDirectories) {
-		Collection<IDbDeploy> deploys = new LinkedList<>();
+		Map<String, IDbDeploy> deploys = new LinkedHashMap<>();
 
-		scriptDirectories.forEach(dir -> deploys.add(new DbDeploy(dir, dir.getName())));
+		for (File dir : scriptDirectories)
+			if (deploys.put(dir.getName(), new DbDeploy(dir, dir.getName())) != null)
+				throw new IllegalArgumentException("more than one script directory named " + dir.getName());
 
-		this.values = Collections.unmodifiableCollection(deploys);
+		this.values = Collections.unmodifiableMap(deploys);
+	}
+
+
+	DbDeployComposite(Map<String, IDbDeploy> deploys) {
+		this.values = Collections.unmodifiableMap(new LinkedHashMap<>(deploys));
+	}
+
+
+	/**
+	 * Number of trees deployed at the same time. Trees are independent (each has its own
+	 * changelog table), so with more than one a failing tree does not stop the others.
+	 * Scripts written to an output file are always generated one tree at a time.
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+
+		this.parallelism = parallelism;
+	}
+
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+
+	public DeploymentResult getResult() {
+		return result;
 	}
 
 
@@ -25,21 +69,25 @@ public class DbDeployComposite implements IDbDeploy {
 
 
 	@Override public void setUrl(String url) {
+		this.url = url;
 		each(x -> x.setUrl(url));
 	}
 
 
 	@Override public void setUserid(String userid) {
+		this.userid = userid;
 		each(x -> x.setUserid(userid));
 	}
 
 
 	@Override public void setPassword(String password) {
+		this.password = password;
 		each(x -> x.setPassword(password));
 	}
 
 
 	@Override public void setOutputfile(File outputfile) {
+		this.outputfile = outputfile;
 		each(x -> x.setOutputfile(outputfile));
 	}
 
@@ -78,9 +126,232 @@ public class DbDeployComposite implements IDbDeploy {
 	}
 
 
+	@Override public void setBatchSize(int batchSize) {
+		each(x -> x.setBatchSize(batchSize));
+	}
+
+
+	@Override public void setAdaptiveBatchSize(boolean adaptiveBatchSize) {
+		each(x -> x.setAdaptiveBatchSize(adaptiveBatchSize));
+	}
+
+
+	@Override public void setTransactionGrouping(TransactionGrouping transactionGrouping) {
+		each(x -> x.setTransactionGrouping(transactionGrouping));
+	}
+
+
+	@Override public void setCommitInterval(int commitInterval) {
+		each(x -> x.setCommitInterval(commitInterval));
+	}
+
+
+	@Override public void setPipelineDepth(int pipelineDepth) {
+		each(x -> x.setPipelineDepth(pipelineDepth));
+	}
+
+
+	@Override public void addListener(DeploymentListener listener) {
+		each(x -> x.addListener(listener));
+	}
+
+
+	@Override public void setStreamingOutput(boolean streamingOutput) {
+		each(x -> x.setStreamingOutput(streamingOutput));
+	}
+
+
+	@Override public void setScanManifestDirectory(File scanManifestDirectory) {
+		each(x -> x.setScanManifestDirectory(scanManifestDirectory));
+	}
+
+
+	@Override public void setRecursiveScan(boolean recursiveScan) {
+		each(x -> x.setRecursiveScan(recursiveScan));
+	}
+
+
+	@Override public void setChecksums(boolean checksums) {
+		each(x -> x.setChecksums(checksums));
+	}
+
+
+	@Override public void setDeployLock(boolean deployLock) {
+		this.deployLock = deployLock;
+		each(x -> x.setDeployLock(deployLock));
+	}
+
+
+	@Override public void setLockTimeout(int lockTimeout) {
+		each(x -> x.setLockTimeout(lockTimeout));
+	}
+
+
+	@Override public void setLockLease(int lockLease) {
+		each(x -> x.setLockLease(lockLease));
+	}
+
+
+	/**
+	 * Connection source shared by every tree. When none is set, {@link #go()} shares a pool
+	 * of connections to url between the trees for the duration of the deploy, keeping open as
+	 * many as the trees deployed at the same time use: one each, two with the deploy lock.
+	 */
+	@Override public void setConnectionSource(ConnectionSource connectionSource) {
+		this.connectionSource = connectionSource;
+		each(x -> x.setConnectionSource(connectionSource));
+	}
+
+
 	@Override public void go() throws Exception {
-		for (IDbDeploy value : values)
+		result = new DeploymentResult(values.keySet());
+
+		withSharedConnections(() -> {
+			deployAll();
+			return null;
+		});
+
+		Log.info(result.toString());
+
+		Map<String, Throwable> failures = result.getFailures();
+
+		if (failures.isEmpty())
+			return;
+
+		Throwable first = failures.values().iterator().next();
+
+		// a sequential run stops at its one failure, which callers get as it was thrown
+		if (first instanceof UsageException || !isParallel())
+			throw (Exception) first;
+
+		throw new CompositeDeploymentException(result, first);
+	}
+
+
+	/**
+	 * Plans every tree in turn; the first tree that cannot be planned fails the whole call.
+	 */
+	@Override public Map<String, DeploymentPlan> plan() throws Exception {
+		return withSharedConnections(() -> {
+			Map<String, DeploymentPlan> plans = new LinkedHashMap<>();
+
+			for (Map.Entry<String, IDbDeploy> value : values.entrySet())
+				value.getValue().plan().forEach((table, plan) -> plans.put(value.getKey(), plan));
+
+			return plans;
+		});
+	}
+
+
+	@Override public Map<String, ChecksumReport> verify() throws Exception {
+		return withSharedConnections(() -> {
+			Map<String, ChecksumReport> reports = new LinkedHashMap<>();
+
+			for (Map.Entry<String, IDbDeploy> value : values.entrySet())
+				value.getValue().verify().forEach((table, report) -> reports.put(value.getKey(), report));
+
+			return reports;
+		});
+	}
+
+
+	private <T> T withSharedConnections(Callable<T> action) throws Exception {
+		if (connectionSource != null || url == null)
+			return action.call();
+
+		try (PooledConnectionSource pool = new PooledConnectionSource(
+				new DriverManagerConnectionSource(url, userid, password), parallelism * (deployLock ? 2 : 1))) {
+			each(x -> x.setConnectionSource(pool));
+			return action.call();
+		}
+		finally {
+			each(x -> x.setConnectionSource(null));
+		}
+	}
+
+
+	private boolean isParallel() {
+		return parallelism > 1 && outputfile == null && values.size() > 1;
+	}
+
+
+	private void deployAll() throws InterruptedException, ExecutionException {
+		if (isParallel())
+			deployInParallel();
+		else
+			deploySequentially();
+	}
+
+
+	private void deploySequentially() {
+		for (Map.Entry<String, IDbDeploy> value : values.entrySet())
+			if (!deploy(value.getKey(), value.getValue()))
+				break;
+	}
+
+
+	private void deployInParallel() throws InterruptedException, ExecutionException {
+		ExecutorService executor = newExecutor(Math.min(parallelism, values.size()));
+		Semaphore permits = new Semaphore(parallelism);
+		List<Future<?>> futures = new ArrayList<>();
+
+		try {
+			values.forEach((name, value) -> futures.add(executor.submit(() -> {
+				permits.acquire();
+
+				try {
+					deploy(name, value);
+				}
+				finally {
+					permits.release();
+				}
+
+				return null;
+			})));
+
+			for (Future<?> future : futures)
+				future.get();
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+
+			throw e;
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+
+	/**
+	 * Records how a tree went; an {@link Error} is not a tree failure and ends the whole run.
+	 */
+	private boolean deploy(String name, IDbDeploy value) {
+		try {
 			value.go();
+			result.succeeded(name);
+			return true;
+		}
+		catch (Exception e) {
+			result.failed(name, e);
+			return false;
+		}
+	}
+
+
+	/**
+	 * Virtual threads when the JDK has them (the semaphore in {@link #deployInParallel()} does
+	 * the bounding), a fixed pool otherwise.
+	 */
+	static ExecutorService newExecutor(int threads) {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		}
+		catch (ReflectiveOperationException e) {
+			return Executors.newFixedThreadPool(threads);
+		}
 	}
 
 
@@ -92,7 +363,7 @@ public class DbDeployComposite implements IDbDeploy {
 
 
 	private void each(ThrowingConsumer f) {
-		for (IDbDeploy value : values)
+		for (IDbDeploy value : values.values())
 			f.accept(value);
 	}
 }
@@ -0,0 +1,74 @@
+package com.dbdeploy;
+
+import com.dbdeploy.scripts.ChangeScript;
+
+import java.util.*;
+
+/**
+ * What a deploy of one script directory would apply, worked out from script filenames and
+ * the changelog table alone: no script file is opened.
+ */
+public class DeploymentPlan {
+	private final List<ChangeScript> available;
+	private final AppliedChangeSet applied;
+	private final List<ChangeScript> pending;
+
+
+	public DeploymentPlan(List<ChangeScript> available, AppliedChangeSet applied, List<ChangeScript> pending) {
+		this.available = Collections.unmodifiableList(new ArrayList<>(available));
+		this.applied = applied;
+		this.pending = Collections.unmodifiableList(new ArrayList<>(pending));
+	}
+
+
+	public List<ChangeScript> getAvailable() {
+		return available;
+	}
+
+
+	public AppliedChangeSet getApplied() {
+		return applied;
+	}
+
+
+	public List<ChangeScript> getPending() {
+		return pending;
+	}
+
+
+	/**
+	 * The ids of {@link #getAvailable()} as ranges.
+	 */
+	public AppliedChangeSet getAvailableChangeSet() {
+		return toChangeSet(available);
+	}
+
+
+	public AppliedChangeSet getPendingChangeSet() {
+		return toChangeSet(pending);
+	}
+
+
+	public boolean isUpToDate() {
+		return pending.isEmpty();
+	}
+
+
+	private static AppliedChangeSet toChangeSet(List<ChangeScript> scripts) {
+		long[] ids = new long[scripts.size()];
+
+		for (int i = 0; i < ids.length; i++)
+			ids[i] = scripts.get(i).getId();
+
+		return AppliedChangeSet.of(ids);
+	}
+
+
+	@Override public String toString() {
+		PrettyPrinter prettyPrinter = new PrettyPrinter();
+
+		return "applied: " + prettyPrinter.format(applied)
+				+ ", available: " + prettyPrinter.format(getAvailableChangeSet())
+				+ ", pending: " + prettyPrinter.format(getPendingChangeSet());
+	}
+}
@@ -0,0 +1,81 @@
+package com.dbdeploy;
+
+import java.util.*;
+
+/**
+ * Outcome of every tree deployed by a {@link DbDeployComposite}, in the order the trees were
+ * given. Trees that never ran (because an earlier one failed or the run was interrupted) stay
+ * {@link Outcome#SKIPPED}.
+ */
+public class DeploymentResult {
+
+	public enum Outcome {
+		SUCCEEDED, FAILED, SKIPPED
+	}
+
+	private final Map<String, Outcome> outcomes = new LinkedHashMap<>();
+	private final Map<String, Throwable> failures = new LinkedHashMap<>();
+
+
+	public DeploymentResult(Collection<String> names) {
+		names.forEach(name -> outcomes.put(name, Outcome.SKIPPED));
+	}
+
+
+	synchronized void succeeded(String name) {
+		outcomes.put(name, Outcome.SUCCEEDED);
+	}
+
+
+	synchronized void failed(String name, Throwable cause) {
+		outcomes.put(name, Outcome.FAILED);
+		failures.put(name, cause);
+	}
+
+
+	public synchronized Outcome getOutcome(String name) {
+		return outcomes.get(name);
+	}
+
+
+	public List<String> getSucceeded() {
+		return namesWith(Outcome.SUCCEEDED);
+	}
+
+
+	public List<String> getFailed() {
+		return namesWith(Outcome.FAILED);
+	}
+
+
+	public List<String> getSkipped() {
+		return namesWith(Outcome.SKIPPED);
+	}
+
+
+	public synchronized Map<String, Throwable> getFailures() {
+		return new LinkedHashMap<>(failures);
+	}
+
+
+	public synchronized boolean isSuccessful() {
+		return !outcomes.containsValue(Outcome.FAILED) && !outcomes.containsValue(Outcome.SKIPPED);
+	}
+
+
+	private synchronized List<String> namesWith(Outcome outcome) {
+		List<String> names = new ArrayList<>();
+
+		outcomes.forEach((name, value) -> {
+			if (value == outcome)
+				names.add(name);
+		});
+
+		return names;
+	}
+
+
+	@Override public String toString() {
+		return "succeeded: " + getSucceeded() + ", failed: " + getFailed() + ", skipped: " + getSkipped();
+	}
+}
@@ -1,8 +1,11 @@
 package com.dbdeploy;
 
 import com.dbdeploy.database.*;
+import com.dbdeploy.database.changelog.ConnectionSource;
+import com.dbdeploy.listener.DeploymentListener;
 
 import java.io.File;
+import java.util.Map;
 
 public interface IDbDeploy {
 
@@ -30,6 +33,44 @@ public interface IDbDeploy {
 
 	void setDelimiterType(DelimiterType delimiterType);
 
+	void setBatchSize(int batchSize);
+
+	void setAdaptiveBatchSize(boolean adaptiveBatchSize);
+
+	void setTransactionGrouping(TransactionGrouping transactionGrouping);
+
+	void setCommitInterval(int commitInterval);
+
+	void setPipelineDepth(int pipelineDepth);
+
+	void setConnectionSource(ConnectionSource connectionSource);
+
+	void setStreamingOutput(boolean streamingOutput);
+
+	void setScanManifestDirectory(File scanManifestDirectory);
+
+	void setRecursiveScan(boolean recursiveScan);
+
+	void setChecksums(boolean checksums);
+
+	void setDeployLock(boolean deployLock);
+
+	void setLockTimeout(int lockTimeout);
+
+	void setLockLease(int lockLease);
+
+	void addListener(DeploymentListener listener);
+
 
 	void go() throws Exception;
+
+	/**
+	 * What {@link #go()} would apply to each changelog table, without opening any script.
+	 */
+	Map<String, DeploymentPlan> plan() throws Exception;
+
+	/**
+	 * Compares the applied scripts of each changelog table with the checksums recorded for them.
+	 */
+	Map<String, ChecksumReport> verify() throws Exception;
 }
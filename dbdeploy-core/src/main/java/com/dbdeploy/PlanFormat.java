@@ -0,0 +1,87 @@
+package com.dbdeploy;
+
+import com.dbdeploy.io.JsonWriter;
+import com.dbdeploy.scripts.ChangeScript;
+
+import java.io.*;
+import java.util.Map;
+
+/**
+ * How {@link IDbDeploy#plan()} is reported: as text for people or as JSON for pipelines.
+ */
+public enum PlanFormat {
+	text {
+		@Override public void write(Map<String, DeploymentPlan> plans, Writer out) throws IOException {
+			PrettyPrinter prettyPrinter = new PrettyPrinter();
+			PrintWriter printer = new PrintWriter(out);
+
+			for (Map.Entry<String, DeploymentPlan> entry : plans.entrySet()) {
+				DeploymentPlan plan = entry.getValue();
+
+				printer.println(entry.getKey() + (plan.isUpToDate() ? ": up to date" : ": " + plan.getPending().size() + " pending"));
+				printer.println("  applied:   " + prettyPrinter.format(plan.getApplied()));
+				printer.println("  available: " + prettyPrinter.format(plan.getAvailableChangeSet()));
+
+				for (ChangeScript script : plan.getPending())
+					printer.println("  pending:   " + script);
+			}
+
+			printer.flush();
+		}
+	},
+
+	json {
+		@Override public void write(Map<String, DeploymentPlan> plans, Writer out) throws IOException {
+			JsonWriter json = new JsonWriter(out);
+			boolean upToDate = plans.values().stream().allMatch(DeploymentPlan::isUpToDate);
+
+			json.beginObject()
+			    .name("upToDate").value(upToDate)
+			    .name("plans").beginArray();
+
+			for (Map.Entry<String, DeploymentPlan> entry : plans.entrySet()) {
+				DeploymentPlan plan = entry.getValue();
+
+				json.beginObject()
+				    .name("name").value(entry.getKey())
+				    .name("upToDate").value(plan.isUpToDate());
+
+				json.name("applied");
+				writeRanges(json, plan.getApplied());
+
+				json.name("available");
+				writeRanges(json, plan.getAvailableChangeSet());
+
+				json.name("pending").beginArray();
+
+				for (ChangeScript script : plan.getPending())
+					json.beginObject()
+					    .name("id").value(script.getId())
+					    .name("script").value(script.getDescription())
+					    .endObject();
+
+				json.endArray().endObject();
+			}
+
+			json.endArray().endObject();
+			out.write(System.lineSeparator());
+			out.flush();
+		}
+
+
+		private void writeRanges(JsonWriter json, AppliedChangeSet changes) throws IOException {
+			json.beginArray();
+
+			for (int range = 0; range < changes.getRangeCount(); range++)
+				json.beginArray()
+				    .value(changes.getRangeStart(range))
+				    .value(changes.getRangeEnd(range))
+				    .endArray();
+
+			json.endArray();
+		}
+	};
+
+
+	public abstract void write(Map<String, DeploymentPlan> plans, Writer out) throws IOException;
+}
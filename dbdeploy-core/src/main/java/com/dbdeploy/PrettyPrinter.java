@@ -7,66 +7,55 @@ import java.util.*;
 public class PrettyPrinter {
 
 	public String format(List<Long> appliedChanges) {
+		return format(AppliedChangeSet.of(appliedChanges));
+	}
+
+	public String format(AppliedChangeSet appliedChanges) {
 		if (appliedChanges.isEmpty()) {
 			return "(none)";
 		}
 
 		StringBuilder builder = new StringBuilder();
 
-		Long lastRangeStart = null;
-		Long lastNumber = null;
-
-		for (Long thisNumber : appliedChanges) {
-			if (lastNumber == null) {
-				// first in loop
-				lastNumber = thisNumber;
-				lastRangeStart = thisNumber;
-			}
-			else if (thisNumber == lastNumber + 1) {
-				// continuation of current range
-				lastNumber = thisNumber;
-			}
-			else {
-				// doesn't fit into last range - so output the old range and
-				// start a new one
-				appendRange(builder, lastRangeStart, lastNumber);
-				lastNumber = thisNumber;
-				lastRangeStart = thisNumber;
-			}
+		for (int range = 0; range < appliedChanges.getRangeCount(); range++) {
+			appendRange(builder, appliedChanges.getRangeStart(range), appliedChanges.getRangeEnd(range));
 		}
 
-		appendRange(builder, lastRangeStart, lastNumber);
 		return builder.toString();
 	}
 
-	private void appendRange(StringBuilder builder, Long lastRangeStart, Long lastNumber) {
-		if (lastRangeStart == lastNumber) {
-			appendWithPossibleComma(builder, lastNumber);
+	private void appendRange(StringBuilder builder, long rangeStart, long rangeEnd) {
+		if (rangeStart == rangeEnd) {
+			appendWithPossibleComma(builder).append(rangeEnd);
 		}
-		else if (lastRangeStart + 1 == lastNumber) {
-			appendWithPossibleComma(builder, lastRangeStart);
-			appendWithPossibleComma(builder, lastNumber);
+		else if (rangeStart + 1 == rangeEnd) {
+			appendWithPossibleComma(builder).append(rangeStart);
+			appendWithPossibleComma(builder).append(rangeEnd);
 		}
 		else {
-			appendWithPossibleComma(builder, lastRangeStart + ".." + lastNumber);
+			appendWithPossibleComma(builder).append(rangeStart).append("..").append(rangeEnd);
 		}
 	}
 
-	private void appendWithPossibleComma(StringBuilder builder, Object o) {
+	private StringBuilder appendWithPossibleComma(StringBuilder builder) {
 		if (builder.length() != 0) {
 			builder.append(", ");
 		}
-		builder.append(o);
+		return builder;
 	}
 
 	public String formatChangeScriptList(List<ChangeScript> changeScripts) {
-		List<Long> numberList = new ArrayList<>(changeScripts.size());
+		return format(toChangeSet(changeScripts));
+	}
+
+	private static AppliedChangeSet toChangeSet(List<ChangeScript> changeScripts) {
+		long[] numbers = new long[changeScripts.size()];
 
-		for (ChangeScript changeScript : changeScripts) {
-			numberList.add(changeScript.getId());
+		for (int i = 0; i < numbers.length; i++) {
+			numbers[i] = changeScripts.get(i).getId();
 		}
 
-		return format(numberList);
+		return AppliedChangeSet.of(numbers);
 	}
 
 }
@@ -1,6 +1,21 @@
 package com.dbdeploy.appliers;
 
 public enum ApplyMode {
-	DO,
-	UNDO,
+	DO("apply"),
+	UNDO("undo"),
+	;
+
+	private final String templateQualifier;
+
+	ApplyMode(String templateQualifier) {
+		this.templateQualifier = templateQualifier;
+	}
+
+	public String getTemplateQualifier() {
+		return templateQualifier;
+	}
+
+	public String templateName(String syntax) {
+		return syntax + "_" + templateQualifier + ".ftl";
+	}
 }
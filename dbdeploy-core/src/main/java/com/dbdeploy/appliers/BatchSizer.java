@@ -0,0 +1,49 @@
+package com.dbdeploy.appliers;
+
+/**
+ * Decides how many consecutive statements go into each JDBC batch. With a fixed size every
+ * batch is filled up to the configured maximum. The adaptive sizer starts small, doubles
+ * the size while the time per statement keeps improving and halves it when batches get
+ * markedly slower, never going above the configured maximum.
+ */
+class BatchSizer {
+	private static final int INITIAL_ADAPTIVE_SIZE = 16;
+	private static final int MINIMUM_ADAPTIVE_SIZE = 2;
+
+	private final int maximumSize;
+	private final boolean adaptive;
+
+	private int currentSize;
+	private double bestNanosPerStatement = Double.MAX_VALUE;
+
+
+	BatchSizer(int maximumSize, boolean adaptive) {
+		this.maximumSize = maximumSize;
+		this.adaptive = adaptive;
+		this.currentSize = adaptive ? Math.min(INITIAL_ADAPTIVE_SIZE, maximumSize) : maximumSize;
+	}
+
+
+	int nextSize() {
+		return currentSize;
+	}
+
+
+	void record(int statements, long nanos) {
+		// a short batch was cut off by the end of a run of batchable statements,
+		// so it says nothing about whether the current size is a good one
+		if (!adaptive || statements < currentSize)
+			return;
+
+		double nanosPerStatement = (double) nanos / statements;
+
+		if (nanosPerStatement < bestNanosPerStatement * 0.95) {
+			bestNanosPerStatement = nanosPerStatement;
+			currentSize = Math.min(maximumSize, currentSize * 2);
+		}
+		else if (nanosPerStatement > bestNanosPerStatement * 1.5) {
+			currentSize = Math.max(MINIMUM_ADAPTIVE_SIZE, currentSize / 2);
+			bestNanosPerStatement = nanosPerStatement;
+		}
+	}
+}
@@ -1,18 +1,29 @@
 package com.dbdeploy.appliers;
 
 import com.dbdeploy.ChangeScriptApplier;
-import com.dbdeploy.database.QueryStatementSplitter;
+import com.dbdeploy.database.*;
 import com.dbdeploy.database.changelog.*;
-import com.dbdeploy.exceptions.ChangeScriptFailedException;
+import com.dbdeploy.exceptions.*;
+import com.dbdeploy.listener.DeploymentListener;
+import com.dbdeploy.log.Log;
 import com.dbdeploy.scripts.ChangeScript;
 
-import java.sql.SQLException;
-import java.util.List;
+import java.sql.*;
+import java.util.*;
 
 public class DirectToDbApplier implements ChangeScriptApplier {
 	private final QueryExecuter queryExecuter;
 	private final DatabaseSchemaVersionManager schemaVersionManager;
 	private final QueryStatementSplitter splitter;
+	private int batchSize;
+	private boolean adaptiveBatchSize;
+	private BatchSizer batchSizer;
+	private TransactionGrouping transactionGrouping = TransactionGrouping.script;
+	private int commitInterval = 1;
+	private DeploymentListener listener = DeploymentListener.NONE;
+	private int pipelineDepth;
+	private StatementPipeline pipeline;
+	private DeployLock deployLock;
 
 	public DirectToDbApplier(QueryExecuter queryExecuter, DatabaseSchemaVersionManager schemaVersionManager, QueryStatementSplitter splitter) {
 		this.queryExecuter = queryExecuter;
@@ -23,13 +34,79 @@ public class DirectToDbApplier implements ChangeScriptApplier {
 	public void apply(List<ChangeScript> changeScript) {
 		begin();
 
-		for (ChangeScript script : changeScript) {
-			System.err.println("Applying " + script + "...");
+		int uncommitted = 0;
 
+		if (pipelineDepth > 0)
+			pipeline = new StatementPipeline(changeScript, splitter, pipelineDepth);
+
+		try {
+			for (ChangeScript script : changeScript) {
+				Log.info("Applying " + script + "...");
+
+				if (deployLock != null && !deployLock.isHeld())
+					throw new DeployLockLostException(deployLock.getLockTableName());
+
+				applyAndRecord(script);
+				uncommitted++;
+
+				if (isCommitDue(uncommitted)) {
+					commit(uncommitted);
+					uncommitted = 0;
+				}
+			}
+
+			if (uncommitted > 0)
+				commit(uncommitted);
+		}
+		catch (RuntimeException e) {
+			rollbackTransaction(e);
+			throw e;
+		}
+		finally {
+			if (pipeline != null) {
+				pipeline.close();
+				pipeline = null;
+			}
+		}
+	}
+
+	private void applyAndRecord(ChangeScript script) {
+		listener.scriptStarted(script);
+		long start = System.nanoTime();
+
+		try {
 			applyChangeScript(script);
 			insertToSchemaVersionTable(script);
+		}
+		catch (RuntimeException e) {
+			listener.scriptFinished(script, System.nanoTime() - start, e);
+			throw e;
+		}
+
+		listener.scriptFinished(script, System.nanoTime() - start, null);
+	}
+
+	private void commit(int scripts) {
+		// asks the database rather than trusting the heartbeat, as a lease can be taken over between beats
+		if (deployLock != null && !deployLock.renew())
+			throw new DeployLockLostException(deployLock.getLockTableName());
+
+		listener.commitStarted(scripts);
+		long start = System.nanoTime();
+		commitTransaction();
+		listener.committed(scripts, System.nanoTime() - start);
+	}
 
-			commitTransaction();
+	private boolean isCommitDue(int uncommittedScripts) {
+		switch (transactionGrouping) {
+			case count:
+				return uncommittedScripts >= commitInterval;
+
+			case deploy:
+				return false;
+
+			default:
+				return true;
 		}
 	}
 
@@ -43,32 +120,285 @@ public class DirectToDbApplier implements ChangeScriptApplier {
 	}
 
 	protected void applyChangeScript(ChangeScript script) {
+		if (pipeline != null) {
+			applyStatements(script, pipeline.nextScript(), -1);
+			return;
+		}
+
 		List<String> statements = splitter.split(script.getContent());
+		applyStatements(script, statements.iterator(), statements.size());
+	}
+
+	/**
+	 * Executes the statements of a script as they come, {@code total} of them or -1 when that
+	 * is not known up front. When batching, each run of consecutive DML statements goes as
+	 * JDBC batches; anything else, such as DDL, still goes on its own so it keeps its place
+	 * in the script.
+	 */
+	private void applyStatements(ChangeScript script, Iterator<String> statements, int total) {
+		boolean batching = isBatching();
+		List<String> batch = new ArrayList<>();
+		int batchLimit = 0;
+		int batchStart = 0;
+		int number = 0;
+
+		while (statements.hasNext()) {
+			String statement = statements.next();
+			number++;
+
+			if (batching && isBatchable(statement)) {
+				if (batch.isEmpty()) {
+					batchLimit = batchSizer.nextSize();
+					batchStart = number;
+				}
+
+				batch.add(statement);
+
+				if (batch.size() >= batchLimit)
+					flushBatch(script, batch, batchStart, total);
+			}
+			else {
+				flushBatch(script, batch, batchStart, total);
+				executeStatement(script, number, statement, total);
+			}
+		}
+
+		flushBatch(script, batch, batchStart, total);
+	}
+
+	private void flushBatch(ChangeScript script, List<String> batch, int first, int total) {
+		if (batch.size() == 1)
+			executeStatement(script, first, batch.get(0), total);
+		else if (batch.size() > 1)
+			executeBatch(script, batch, first, total);
+
+		batch.clear();
+	}
+
+	private void executeStatement(ChangeScript script, int number, String statement, int total) {
+		if (total != 1)
+			Log.info(" -> statement " + number + ofTotal(total) + "...");
+
+		listener.statementStarted(script, number, statement);
+		long start = System.nanoTime();
+		int rowsAffected;
+
+		try {
+			rowsAffected = queryExecuter.execute(statement);
+		}
+		catch (SQLException e) {
+			listener.statementFinished(script, number, statement, System.nanoTime() - start, -1, e);
+			throw new ChangeScriptFailedException(e, script, number, statement);
+		}
+
+		listener.statementFinished(script, number, statement, System.nanoTime() - start, rowsAffected, null);
+	}
+
+	/**
+	 * Sends a batch whose first statement is statement {@code first} of the script.
+	 */
+	private void executeBatch(ChangeScript script, List<String> batch, int first, int total) {
+		Log.info(" -> statements " + first + ".." + (first + batch.size() - 1) + ofTotal(total) + " as a batch...");
+
+		for (int i = 0; i < batch.size(); i++)
+			listener.statementStarted(script, first + i, batch.get(i));
+
+		long start = System.nanoTime();
+		int[] updateCounts;
+
+		try {
+			updateCounts = queryExecuter.executeBatch(batch);
+		}
+		catch (BatchUpdateException e) {
+			int failed = indexOfFailedStatement(e, batch.size());
+			batchFinished(script, batch, first, failed + 1, System.nanoTime() - start, e.getUpdateCounts(), e);
+			throw new ChangeScriptFailedException(e, script, first + failed, batch.get(failed));
+		}
+		catch (SQLException e) {
+			batchFinished(script, batch, first, 1, System.nanoTime() - start, null, e);
+			throw new ChangeScriptFailedException(e, script, first, batch.get(0));
+		}
+
+		long elapsed = System.nanoTime() - start;
+		batchSizer.record(batch.size(), elapsed);
+		batchFinished(script, batch, first, batch.size(), elapsed, updateCounts, null);
+	}
+
+	private static String ofTotal(int total) {
+		return total < 0 ? "" : " of " + total;
+	}
+
+	/**
+	 * Reports the first {@code count} statements of a batch as finished, the last one with the
+	 * failure if any.
+	 */
+	private void batchFinished(ChangeScript script, List<String> batch, int first, int count, long nanos,
+	                           int[] updateCounts, SQLException failure) {
+		long share = nanos / count;
+
+		for (int i = 0; i < count; i++) {
+			int rowsAffected = updateCounts != null && i < updateCounts.length && updateCounts[i] >= 0
+					? updateCounts[i]
+					: -1;
+
+			listener.statementFinished(script, first + i, batch.get(i), share, rowsAffected,
+					i == count - 1 ? failure : null);
+		}
+	}
+
+	/**
+	 * Drivers either stop at the first failing statement, reporting counts for the ones before
+	 * it, or carry on and mark the failures with {@link Statement#EXECUTE_FAILED}.
+	 */
+	static int indexOfFailedStatement(BatchUpdateException e, int batchLength) {
+		int[] updateCounts = e.getUpdateCounts();
+
+		if (updateCounts == null)
+			return 0;
+
+		for (int i = 0; i < updateCounts.length; i++)
+			if (updateCounts[i] == Statement.EXECUTE_FAILED)
+				return i;
+
+		return Math.min(updateCounts.length, batchLength - 1);
+	}
 
-		for (int i = 0; i < statements.size(); i++) {
-			String statement = statements.get(i);
-			try {
-				if (statements.size() > 1)
-					System.err.println(" -> statement " + (i + 1) + " of " + statements.size() + "...");
+	static boolean isBatchable(String statement) {
+		int start = skipWhitespaceAndComments(statement);
 
-				queryExecuter.execute(statement);
+		return startsWithKeyword(statement, start, "INSERT")
+				|| startsWithKeyword(statement, start, "UPDATE")
+				|| startsWithKeyword(statement, start, "DELETE")
+				|| startsWithKeyword(statement, start, "MERGE");
+	}
+
+	private static int skipWhitespaceAndComments(String statement) {
+		int i = 0;
+
+		while (i < statement.length()) {
+			if (Character.isWhitespace(statement.charAt(i))) {
+				i++;
+			}
+			else if (statement.startsWith("--", i)) {
+				int lineEnd = statement.indexOf('\n', i);
+				i = lineEnd < 0 ? statement.length() : lineEnd + 1;
 			}
-			catch (SQLException e) {
-				throw new ChangeScriptFailedException(e, script, i + 1, statement);
+			else if (statement.startsWith("/*", i)) {
+				int commentEnd = statement.indexOf("*/", i + 2);
+				i = commentEnd < 0 ? statement.length() : commentEnd + 2;
+			}
+			else {
+				break;
 			}
 		}
+
+		return i;
+	}
+
+	private static boolean startsWithKeyword(String statement, int start, String keyword) {
+		int end = start + keyword.length();
+
+		return statement.regionMatches(true, start, keyword, 0, keyword.length())
+				&& (end == statement.length() || !Character.isLetterOrDigit(statement.charAt(end)));
+	}
+
+	private boolean isBatching() {
+		if (batchSize < 2)
+			return false;
+
+		if (batchSizer == null) {
+			if (!supportsBatchUpdates()) {
+				Log.warn("Database driver does not support batch updates, executing statements one by one");
+				batchSize = 0;
+				return false;
+			}
+
+			batchSizer = new BatchSizer(batchSize, adaptiveBatchSize);
+		}
+
+		return true;
+	}
+
+	private boolean supportsBatchUpdates() {
+		try {
+			return queryExecuter.supportsBatchUpdates();
+		}
+		catch (SQLException e) {
+			return false;
+		}
+	}
+
+	public void setListener(DeploymentListener listener) {
+		this.listener = listener;
+	}
+
+	public void setTransactionGrouping(TransactionGrouping transactionGrouping) {
+		this.transactionGrouping = transactionGrouping;
+	}
+
+	/**
+	 * Number of scripts per transaction when grouping by {@link TransactionGrouping#count}.
+	 */
+	public void setCommitInterval(int commitInterval) {
+		this.commitInterval = Math.max(1, commitInterval);
+	}
+
+	/**
+	 * Largest number of consecutive INSERT, UPDATE, DELETE or MERGE statements sent in one
+	 * JDBC batch. Anything below 2 executes every statement on its own, which is the default.
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+		this.batchSizer = null;
+	}
+
+	/**
+	 * Lets the batch size float between 2 and {@link #setBatchSize the batch size}
+	 * depending on how fast the database works through the batches.
+	 */
+	public void setAdaptiveBatchSize(boolean adaptiveBatchSize) {
+		this.adaptiveBatchSize = adaptiveBatchSize;
+		this.batchSizer = null;
+	}
+
+	/**
+	 * Number of statements a reader thread may split ahead of the one executing, reading on
+	 * into the next scripts, so that reading and splitting overlap with the database's work
+	 * while holding no more than that many statements, and no more than
+	 * {@link StatementPipeline#DEFAULT_MAX_CHARS} characters of them, in memory. 0, the
+	 * default, reads and splits each script whole just before applying it.
+	 */
+	public void setPipelineDepth(int pipelineDepth) {
+		this.pipelineDepth = Math.max(0, pipelineDepth);
+	}
+
+	/**
+	 * Lock this deploy holds: no script is started and nothing committed once it is lost,
+	 * and the scripts not yet committed are rolled back.
+	 */
+	public void setDeployLock(DeployLock deployLock) {
+		this.deployLock = deployLock;
 	}
 
 	protected void insertToSchemaVersionTable(ChangeScript changeScript) {
 		schemaVersionManager.recordScriptApplied(changeScript);
 	}
 
+	protected void rollbackTransaction(RuntimeException cause) {
+		try {
+			queryExecuter.rollback();
+		}
+		catch (SQLException e) {
+			cause.addSuppressed(e);
+		}
+	}
+
 	protected void commitTransaction() {
 		try {
 			queryExecuter.commit();
 		}
 		catch (SQLException e) {
-			throw new RuntimeException();
+			throw new DbDeployException("Failed to commit transaction", e);
 		}
 	}
 }
@@ -0,0 +1,165 @@
+package com.dbdeploy.appliers;
+
+import com.dbdeploy.database.QueryStatementSplitter;
+import com.dbdeploy.exceptions.DbDeployException;
+import com.dbdeploy.log.Log;
+import com.dbdeploy.scripts.ChangeScript;
+
+import java.io.Reader;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Reads and splits change scripts on a thread of its own, handing their statements over
+ * through a bounded queue. The reader runs ahead of the statement being executed, on into
+ * the following scripts, but never by more than the capacity of the queue nor by more than
+ * {@code maxChars} characters of statements, which is what caps the memory a deploy takes
+ * however large its scripts and statements are. A single statement larger than that still
+ * goes through, on its own.
+ */
+class StatementPipeline implements AutoCloseable {
+	static final long DEFAULT_MAX_CHARS = 4L * 1024 * 1024;
+
+	private static final long CLOSE_TIMEOUT_MILLIS = 10_000;
+	private static final Object END_OF_SCRIPT = new Object();
+
+	private final BlockingQueue<Object> queue;
+	private final Thread reader;
+	private final long maxChars;
+	private long queuedChars;
+
+
+	StatementPipeline(List<ChangeScript> scripts, QueryStatementSplitter splitter, int capacity) {
+		this(scripts, splitter, capacity, DEFAULT_MAX_CHARS);
+	}
+
+
+	StatementPipeline(List<ChangeScript> scripts, QueryStatementSplitter splitter, int capacity, long maxChars) {
+		this.queue = new ArrayBlockingQueue<>(capacity);
+		this.maxChars = maxChars;
+		reader = new Thread(() -> read(scripts, splitter), "dbdeploy-reader");
+		reader.setDaemon(true);
+		reader.start();
+	}
+
+
+	private void read(List<ChangeScript> scripts, QueryStatementSplitter splitter) {
+		try {
+			for (ChangeScript script : scripts) {
+				try (Reader content = script.openContentReader()) {
+					Iterator<String> statements = splitter.iterator(content);
+
+					while (statements.hasNext()) {
+						String statement = statements.next();
+						reserve(statement.length());
+						queue.put(statement);
+					}
+				}
+				catch (InterruptedException e) {
+					throw e;
+				}
+				catch (Throwable e) {
+					queue.put(new Failure(script, e));
+					return;
+				}
+
+				queue.put(END_OF_SCRIPT);
+			}
+		}
+		catch (InterruptedException e) {
+			// closed before reading everything, e.g. because a script failed
+		}
+	}
+
+
+	/**
+	 * The statements of the next script; scripts are handed over in the order they were given in.
+	 */
+	Iterator<String> nextScript() {
+		return new Iterator<String>() {
+			private Object next;
+
+			@Override public boolean hasNext() {
+				if (next == null)
+					next = take();
+
+				if (next instanceof Failure)
+					throw ((Failure) next).toException();
+
+				return next != END_OF_SCRIPT;
+			}
+
+			@Override public String next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+
+				String statement = (String) next;
+				next = null;
+				release(statement.length());
+				return statement;
+			}
+		};
+	}
+
+
+	/**
+	 * Waits until {@code chars} more characters fit in the budget, or nothing is queued.
+	 */
+	private synchronized void reserve(int chars) throws InterruptedException {
+		while (queuedChars > 0 && queuedChars + chars > maxChars)
+			wait();
+
+		queuedChars += chars;
+	}
+
+
+	private synchronized void release(int chars) {
+		queuedChars -= chars;
+		notifyAll();
+	}
+
+
+	private Object take() {
+		try {
+			return queue.take();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DbDeployException("Interrupted while waiting for statements", e);
+		}
+	}
+
+
+	/**
+	 * Stops the reader and waits for it to let go of the file it has open.
+	 */
+	@Override public void close() {
+		reader.interrupt();
+
+		try {
+			reader.join(CLOSE_TIMEOUT_MILLIS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+
+		if (reader.isAlive())
+			Log.warn("Change script reader did not stop within " + CLOSE_TIMEOUT_MILLIS + " ms");
+	}
+
+
+	private static class Failure {
+		private final ChangeScript script;
+		private final Throwable cause;
+
+		Failure(ChangeScript script, Throwable cause) {
+			this.script = script;
+			this.cause = cause;
+		}
+
+		DbDeployException toException() {
+			return new DbDeployException("Failed to read change script file " + script.getFile(), cause);
+		}
+	}
+}
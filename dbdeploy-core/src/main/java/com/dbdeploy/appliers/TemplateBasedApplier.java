@@ -3,21 +3,29 @@ package com.dbdeploy.appliers;
 import com.dbdeploy.ChangeScriptApplier;
 import com.dbdeploy.database.DelimiterType;
 import com.dbdeploy.exceptions.UsageException;
+import com.dbdeploy.listener.DeploymentListener;
 import com.dbdeploy.scripts.ChangeScript;
-import freemarker.cache.*;
 import freemarker.template.*;
 
 import java.io.*;
+import java.nio.channels.*;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 
 
 public class TemplateBasedApplier implements ChangeScriptApplier {
-	private Configuration configuration;
+	private static final int STREAMING_BUFFER_SIZE = 1 << 20;
+
+	private TemplateCache.Templates templates;
 	private Writer writer;
 	private String syntax;
 	private String changeLogTableName;
 	private String delimiter;
 	private DelimiterType delimiterType;
+	private boolean streaming;
+	private boolean checksums;
+	private DeploymentListener listener = DeploymentListener.NONE;
 
 	public TemplateBasedApplier(Writer writer, String syntax, String changeLogTableName, String delimiter, DelimiterType delimiterType, File templateDirectory) throws IOException {
 		this.syntax = syntax;
@@ -25,27 +33,34 @@ public class TemplateBasedApplier implements ChangeScriptApplier {
 		this.delimiter = delimiter;
 		this.delimiterType = delimiterType;
 		this.writer = writer;
-		this.configuration = new Configuration();
-
-		FileTemplateLoader fileTemplateLoader = createFileTemplateLoader(templateDirectory);
-		this.configuration.setTemplateLoader(
-				new MultiTemplateLoader(new TemplateLoader[]{
-						fileTemplateLoader,
-						new ClassTemplateLoader(getClass(), "/"),
-				}));
+		this.templates = TemplateCache.shared().forDirectory(templateDirectory);
 	}
 
-	private FileTemplateLoader createFileTemplateLoader(File templateDirectory) throws IOException {
-		if (templateDirectory == null) {
-			return new FileTemplateLoader();
-		}
-		else {
-			return new FileTemplateLoader(templateDirectory, true);
-		}
+	/**
+	 * Renders the template once per script, with {@code scripts} holding just that script,
+	 * instead of once for the whole list. Only one script's content is held at a time and
+	 * output is only flushed when the buffer fills, so memory stays flat however many scripts
+	 * there are. The output is identical for templates that produce nothing outside their
+	 * {@code [#list scripts]}, which includes all the bundled ones.
+	 */
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
+
+	/**
+	 * Whether the changelog inserts carry each script's checksum. Templates see this as
+	 * {@code checksums}.
+	 */
+	public void setChecksums(boolean checksums) {
+		this.checksums = checksums;
+	}
+
+	public void setListener(DeploymentListener listener) {
+		this.listener = listener;
 	}
 
 	public void apply(List<ChangeScript> changeScripts) {
-		String filename = syntax + "_" + getTemplateQualifier() + ".ftl";
+		String filename = getApplyMode().templateName(syntax);
 
 		try {
 			Map<String, Object> model = new HashMap<>();
@@ -53,10 +68,20 @@ public class TemplateBasedApplier implements ChangeScriptApplier {
 			model.put("changeLogTableName", changeLogTableName);
 			model.put("delimiter", delimiter);
 			model.put("separator", delimiterType == DelimiterType.row ? "\n" : "");
+			model.put("checksums", checksums);
 
 			try {
-				Template template = configuration.getTemplate(filename);
-				template.process(model, writer);
+				Template template = templates.get(syntax, getApplyMode());
+
+				listener.templateRenderStarted(filename, changeScripts.size());
+				long start = System.nanoTime();
+
+				if (streaming)
+					processEach(template, model, changeScripts);
+				else
+					template.process(model, writer);
+
+				listener.templateRenderFinished(filename, changeScripts.size(), System.nanoTime() - start);
 			}
 			finally {
 				writer.close();
@@ -71,8 +96,34 @@ public class TemplateBasedApplier implements ChangeScriptApplier {
 		}
 	}
 
-	protected String getTemplateQualifier() {
-		return "apply";
+	private void processEach(Template template, Map<String, Object> model, List<ChangeScript> changeScripts)
+			throws IOException, TemplateException {
+		// freemarker flushes after every process call, which would defeat the buffer
+		Writer out = new FilterWriter(writer) {
+			@Override public void flush() {
+			}
+		};
+
+		for (ChangeScript changeScript : changeScripts) {
+			model.put("scripts", Collections.singletonList(changeScript));
+			template.process(model, out);
+		}
+
+		writer.flush();
+	}
+
+	/**
+	 * Writer suited to streaming output: a large buffer over a file channel.
+	 */
+	public static Writer openStreamingWriter(File file, Charset charset) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+
+		return new BufferedWriter(Channels.newWriter(channel, charset.newEncoder(), -1), STREAMING_BUFFER_SIZE);
+	}
+
+	protected ApplyMode getApplyMode() {
+		return ApplyMode.DO;
 	}
 
 }
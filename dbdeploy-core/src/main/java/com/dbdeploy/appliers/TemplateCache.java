@@ -0,0 +1,135 @@
+package com.dbdeploy.appliers;
+
+import freemarker.cache.*;
+import freemarker.template.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compiled templates shared by every {@link TemplateBasedApplier} in the process, so a
+ * composite deploy or a build generating scripts for several dbms parses each template once.
+ * Templates are keyed by template directory, dbms and {@link ApplyMode}; each lookup compares
+ * the template's last modified time with the one it was compiled from and recompiles it when
+ * they differ.
+ */
+public class TemplateCache {
+	private static final TemplateCache SHARED = new TemplateCache();
+
+	private final ConcurrentMap<Optional<File>, Templates> directories = new ConcurrentHashMap<>();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+
+	public static TemplateCache shared() {
+		return SHARED;
+	}
+
+
+	/**
+	 * Templates found in templateDirectory (the working directory when null), falling back to
+	 * the ones bundled with dbdeploy.
+	 */
+	public Templates forDirectory(File templateDirectory) throws IOException {
+		Optional<File> key = Optional.ofNullable(templateDirectory).map(File::getAbsoluteFile);
+		Templates templates = directories.get(key);
+
+		if (templates == null) {
+			templates = new Templates(templateDirectory);
+			Templates existing = directories.putIfAbsent(key, templates);
+
+			if (existing != null)
+				templates = existing;
+		}
+
+		return templates;
+	}
+
+
+	public void clear() {
+		directories.clear();
+	}
+
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+
+	@Override public String toString() {
+		return "template cache: " + getHits() + " hits, " + getMisses() + " misses";
+	}
+
+
+	public class Templates {
+		private final TemplateLoader loader;
+		private final Configuration configuration;
+		private final ConcurrentMap<String, Compiled> compiled = new ConcurrentHashMap<>();
+
+		private Templates(File templateDirectory) throws IOException {
+			loader = new MultiTemplateLoader(new TemplateLoader[]{
+					templateDirectory == null ? new FileTemplateLoader() : new FileTemplateLoader(templateDirectory, true),
+					new ClassTemplateLoader(TemplateBasedApplier.class, "/"),
+			});
+
+			configuration = new Configuration();
+			configuration.setTemplateLoader(loader);
+			// staleness is decided here, freemarker only ever loads what we ask it to
+			configuration.setCacheStorage(new NullCacheStorage());
+		}
+
+
+		/**
+		 * @throws FileNotFoundException when no template exists for the dbms and mode
+		 */
+		public Template get(String syntax, ApplyMode mode) throws IOException {
+			String name = mode.templateName(syntax);
+			long lastModified = lastModified(name);
+			Compiled entry = compiled.get(name);
+
+			if (entry != null && entry.lastModified == lastModified) {
+				hits.increment();
+				return entry.template;
+			}
+
+			misses.increment();
+			Template template = configuration.getTemplate(name);
+			compiled.put(name, new Compiled(template, lastModified));
+			return template;
+		}
+
+
+		private long lastModified(String name) throws IOException {
+			Object source = loader.findTemplateSource(name);
+
+			if (source == null)
+				throw new FileNotFoundException("Template not found: " + name);
+
+			try {
+				return loader.getLastModified(source);
+			}
+			finally {
+				loader.closeTemplateSource(source);
+			}
+		}
+	}
+
+
+	private static final class Compiled {
+		private final Template template;
+		private final long lastModified;
+
+		Compiled(Template template, long lastModified) {
+			this.template = template;
+			this.lastModified = lastModified;
+		}
+	}
+}
@@ -11,7 +11,7 @@ public class UndoTemplateBasedApplier extends TemplateBasedApplier {
 	}
 
 	@Override
-	protected String getTemplateQualifier() {
-		return "undo";
+	protected ApplyMode getApplyMode() {
+		return ApplyMode.UNDO;
 	}
 }
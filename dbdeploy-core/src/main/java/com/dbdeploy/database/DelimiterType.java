@@ -8,6 +8,10 @@ public enum DelimiterType {
 		public boolean matches(String line, String delimiter) {
 			return line.endsWith(delimiter);
 		}
+
+		boolean matches(CharSequence text, int lineStart, String delimiter) {
+			return text.length() - lineStart >= delimiter.length() && endsWith(text, delimiter);
+		}
 	},
 
 	/**
@@ -17,7 +21,47 @@ public enum DelimiterType {
 		public boolean matches(String line, String delimiter) {
 			return line.equals(delimiter);
 		}
+
+		boolean matches(CharSequence text, int lineStart, String delimiter) {
+			return text.length() - lineStart == delimiter.length() && endsWith(text, delimiter);
+		}
+	},
+
+	/**
+	 * Delimiter is interpreted wherever it appears outside string literals, quoted identifiers,
+	 * comments, dollar-quoted bodies and BEGIN or CASE ... END blocks. Scripts are split by a
+	 * lexer rather than line by line; a single line is matched as with {@link #normal}.
+	 *
+	 * <p>Quotes inside literals are escaped the standard way, by doubling them; a backslash
+	 * only escapes in PostgreSQL {@code E'...'} strings. MySQL's {@code 'it\'s'} therefore ends
+	 * the literal at the escaped quote, so such scripts should write {@code 'it''s'} or use
+	 * {@link #normal} or {@link #row}.
+	 */
+	lexical {
+		public boolean matches(String line, String delimiter) {
+			return normal.matches(line, delimiter);
+		}
+
+		boolean matches(CharSequence text, int lineStart, String delimiter) {
+			return normal.matches(text, lineStart, delimiter);
+		}
 	};
 
 	public abstract boolean matches(String line, String delimiter);
+
+	/**
+	 * Same as {@link #matches(String, String)} for the line that starts at {@code lineStart}
+	 * and runs to the end of {@code text}, without copying it out.
+	 */
+	abstract boolean matches(CharSequence text, int lineStart, String delimiter);
+
+	private static boolean endsWith(CharSequence text, String suffix) {
+		int offset = text.length() - suffix.length();
+
+		for (int i = 0; i < suffix.length(); i++)
+			if (text.charAt(offset + i) != suffix.charAt(i))
+				return false;
+
+		return true;
+	}
 }
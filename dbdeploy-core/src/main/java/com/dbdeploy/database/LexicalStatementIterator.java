@@ -0,0 +1,534 @@
+package com.dbdeploy.database;
+
+import com.dbdeploy.exceptions.DbDeployException;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Splits statements in a single pass over the characters of a script, keeping track of string
+ * literals, quoted identifiers, comments, dollar-quoted bodies and BEGIN or CASE ... END blocks,
+ * so that a delimiter inside any of them does not end the statement. Characters are copied
+ * straight from the read buffer into the statement being built; line breaks become the output
+ * line ending, whitespace around a statement is dropped and statements holding nothing but
+ * comments are skipped.
+ *
+ * <p>Blocks are recognised by their keywords only. BEGIN opens one where a block can start:
+ * as the first word of a statement, anywhere in the header of a CREATE PROCEDURE, FUNCTION,
+ * TRIGGER, EVENT or PACKAGE, and inside a block after the delimiter, a label or AS, IS, THEN,
+ * ELSE, LOOP, DO or BEGIN. Anywhere else, such as in {@code SELECT begin FROM t}, it is a name.
+ * BEGIN followed by the delimiter or by TRANSACTION, WORK and the like starts a transaction
+ * rather than a block, and END IF, END LOOP, END WHILE and END REPEAT close constructs that were
+ * never counted. Declarations ahead of the BEGIN of an Oracle package or procedure are not part
+ * of a block, so those still need {@link DelimiterType#row}. A script that ends inside a block
+ * fails rather than run the rest of it as one statement.
+ */
+class LexicalStatementIterator implements Iterator<String> {
+	private static final int BUFFER_SIZE = 8192;
+	private static final int MAX_DOLLAR_TAG = 64;
+
+	private static final String[] TRANSACTION_WORDS = {
+			"TRANSACTION", "TRAN", "WORK", "DEFERRED", "IMMEDIATE", "EXCLUSIVE", "DISTRIBUTED", "ISOLATION", "READ" };
+	private static final String[] UNCOUNTED_ENDS = { "IF", "LOOP", "WHILE", "REPEAT" };
+	private static final String[] ROUTINES = { "PROCEDURE", "FUNCTION", "TRIGGER", "EVENT", "PACKAGE" };
+	private static final String[] BLOCK_LEADERS = { "AS", "IS", "THEN", "ELSE", "LOOP", "DO", "BEGIN" };
+
+	private final Reader reader;
+	private final String delimiter;
+	private final String lineEnding;
+	private final boolean wordDelimiter;
+
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private final StringBuilder currentSql = new StringBuilder();
+	private int position;
+	private int limit;
+	private boolean eof;
+	private String next;
+
+	private boolean hasCode;
+	private int depth;
+	private boolean pendingBegin;
+	private boolean pendingEnd;
+	private boolean routine;
+
+	// the last token of the statement so far, as a range of currentSql; -1 before the first
+	private int previousStart = -1;
+	private int previousEnd = -1;
+
+
+	LexicalStatementIterator(Reader reader, String delimiter, String lineEnding) {
+		if (delimiter.isEmpty())
+			throw new IllegalArgumentException("unsupported delimiter: '" + delimiter + "'");
+
+		this.reader = reader;
+		this.delimiter = delimiter;
+		this.lineEnding = lineEnding;
+		this.wordDelimiter = isIdentifierPart(delimiter.charAt(delimiter.length() - 1));
+	}
+
+
+	@Override public boolean hasNext() {
+		if (next == null)
+			next = readStatement();
+
+		return next != null;
+	}
+
+
+	@Override public String next() {
+		if (!hasNext())
+			throw new NoSuchElementException();
+
+		String statement = next;
+		next = null;
+		return statement;
+	}
+
+
+	private String readStatement() {
+		try {
+			int c;
+
+			while ((c = peek(0)) >= 0) {
+				if (c == '\'' || c == '"' || c == '`') {
+					copyQuoted((char) c, false);
+				}
+				else if (c == '-' && peek(1) == '-') {
+					copyLineComment();
+				}
+				else if (c == '/' && peek(1) == '*') {
+					copyBlockComment();
+				}
+				else if (c == '$' && dollarTagLength() > 0) {
+					copyDollarQuoted(dollarTagLength());
+				}
+				else if (c == delimiter.charAt(0) && isDelimiterAhead()) {
+					if (endOfStatement()) {
+						String statement = take();
+
+						if (statement != null)
+							return statement;
+					}
+				}
+				else if (isIdentifierStart((char) c) || Character.isDigit(c)) {
+					copyWord();
+				}
+				else if (Character.isWhitespace(c)) {
+					if (currentSql.length() == 0)
+						position++;
+					else
+						copyChar();
+				}
+				else {
+					code();
+					copyChar();
+					previous(currentSql.length() - 1);
+				}
+			}
+
+			return lastStatement();
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+
+	private boolean isDelimiterAhead() throws IOException {
+		for (int i = 1; i < delimiter.length(); i++)
+			if (peek(i) != delimiter.charAt(i))
+				return false;
+
+		if (!wordDelimiter)
+			return true;
+
+		int after = peek(delimiter.length());
+		return after < 0 || !isIdentifierPart((char) after);
+	}
+
+
+	/**
+	 * Consumes a delimiter, telling whether it ends the statement rather than a statement
+	 * inside a block.
+	 */
+	private boolean endOfStatement() {
+		position += delimiter.length();
+
+		// a bare BEGIN starts a transaction
+		pendingBegin = false;
+
+		if (pendingEnd) {
+			pendingEnd = false;
+			depth = Math.max(0, depth - 1);
+		}
+
+		if (depth == 0)
+			return true;
+
+		currentSql.append(delimiter);
+		previous(currentSql.length() - delimiter.length());
+		return false;
+	}
+
+
+	private String lastStatement() {
+		if (pendingEnd) {
+			pendingEnd = false;
+			depth = Math.max(0, depth - 1);
+		}
+
+		if (depth > 0)
+			throw new DbDeployException("Script ends inside a BEGIN or CASE block that was never closed with END: "
+					+ firstLine(currentSql));
+
+		return take();
+	}
+
+
+	private static String firstLine(CharSequence text) {
+		int end = 0;
+
+		while (end < text.length() && end < 80 && text.charAt(end) != '\r' && text.charAt(end) != '\n')
+			end++;
+
+		return text.subSequence(0, end).toString();
+	}
+
+
+	private void copyQuoted(char quote, boolean backslashEscapes) throws IOException {
+		code();
+		int start = currentSql.length();
+		currentSql.append(quote);
+		position++;
+
+		int c;
+
+		while ((c = peek(0)) >= 0) {
+			if (c == quote) {
+				currentSql.append(quote);
+				position++;
+
+				if (peek(0) != quote) {
+					previous(start);
+					return;
+				}
+
+				currentSql.append(quote);
+				position++;
+			}
+			else if (c == '\\' && backslashEscapes && peek(1) >= 0) {
+				currentSql.append('\\');
+				position++;
+				copyChar();
+			}
+			else {
+				copyChar();
+			}
+		}
+	}
+
+
+	private void copyLineComment() throws IOException {
+		int c;
+
+		while ((c = peek(0)) >= 0 && c != '\r' && c != '\n') {
+			currentSql.append((char) c);
+			position++;
+		}
+	}
+
+
+	private void copyBlockComment() throws IOException {
+		currentSql.append("/*");
+		position += 2;
+
+		int c;
+
+		while ((c = peek(0)) >= 0) {
+			if (c == '*' && peek(1) == '/') {
+				currentSql.append("*/");
+				position += 2;
+				return;
+			}
+
+			copyChar();
+		}
+	}
+
+
+	/**
+	 * Length of the {@code $tag$} opening a dollar-quoted string here, or 0 if there is none;
+	 * {@code $1} and the like are parameters.
+	 */
+	private int dollarTagLength() throws IOException {
+		for (int i = 1; i <= MAX_DOLLAR_TAG; i++) {
+			int c = peek(i);
+
+			if (c == '$')
+				return i + 1;
+
+			if (c < 0 || !(i == 1 ? isIdentifierStart((char) c) : isIdentifierPart((char) c)))
+				return 0;
+		}
+
+		return 0;
+	}
+
+
+	private void copyDollarQuoted(int tagLength) throws IOException {
+		code();
+		int start = currentSql.length();
+		String tag = new String(buffer, position, tagLength);
+		currentSql.append(tag);
+		position += tagLength;
+
+		int c;
+
+		while ((c = peek(0)) >= 0) {
+			if (c == '$' && isAhead(tag)) {
+				currentSql.append(tag);
+				position += tagLength;
+				previous(start);
+				return;
+			}
+
+			copyChar();
+		}
+	}
+
+
+	private boolean isAhead(String text) throws IOException {
+		for (int i = 0; i < text.length(); i++)
+			if (peek(i) != text.charAt(i))
+				return false;
+
+		return true;
+	}
+
+
+	private void copyWord() throws IOException {
+		int start = currentSql.length();
+		int c;
+
+		while ((c = peek(0)) >= 0 && isIdentifierPart((char) c)) {
+			currentSql.append((char) c);
+			position++;
+		}
+
+		int end = currentSql.length();
+
+		if (!isIdentifierStart(currentSql.charAt(start))) {
+			code();
+			previous(start);
+			return;
+		}
+
+		if (end - start == 1 && (currentSql.charAt(start) == 'E' || currentSql.charAt(start) == 'e') && peek(0) == '\'') {
+			copyQuoted('\'', true);
+			return;
+		}
+
+		keyword(start, end);
+		previous(start);
+	}
+
+
+	private void keyword(int start, int end) {
+		hasCode = true;
+
+		if (pendingBegin) {
+			pendingBegin = false;
+
+			if (isAnyOf(start, end, TRANSACTION_WORDS))
+				return;
+
+			depth++;
+		}
+
+		if (pendingEnd) {
+			pendingEnd = false;
+
+			if (isAnyOf(start, end, UNCOUNTED_ENDS))
+				return;
+
+			depth = Math.max(0, depth - 1);
+
+			// END CASE closes the CASE that was counted
+			if (is(start, end, "CASE"))
+				return;
+		}
+
+		if (is(start, end, "BEGIN")) {
+			if (canOpenBlock())
+				pendingBegin = true;
+		}
+		else if (is(start, end, "CASE")) {
+			depth++;
+		}
+		else if (is(start, end, "END")) {
+			if (!isNameContext())
+				pendingEnd = true;
+		}
+		else if (depth == 0 && isAnyOf(start, end, ROUTINES)) {
+			routine = true;
+		}
+	}
+
+
+	/**
+	 * Whether a BEGIN here opens a block rather than being a name.
+	 */
+	private boolean canOpenBlock() {
+		if (previousStart < 0)
+			return true;
+
+		if (isNameContext())
+			return false;
+
+		if (depth == 0)
+			return routine;
+
+		return isPrevious(';') || isPrevious(':') || isPreviousDelimiter()
+				|| isAnyOf(previousStart, previousEnd, BLOCK_LEADERS);
+	}
+
+
+	/**
+	 * Whether the previous token puts a name next, as in a column list or after a qualifier.
+	 */
+	private boolean isNameContext() {
+		return isPrevious(',') || isPrevious('(') || isPrevious('.');
+	}
+
+
+	private boolean isPrevious(char symbol) {
+		return previousEnd - previousStart == 1 && currentSql.charAt(previousStart) == symbol;
+	}
+
+
+	private boolean isPreviousDelimiter() {
+		return previousEnd - previousStart == delimiter.length()
+				&& currentSql.indexOf(delimiter, previousStart) == previousStart;
+	}
+
+
+	private void previous(int start) {
+		previousStart = start;
+		previousEnd = currentSql.length();
+	}
+
+
+	/**
+	 * Settles a BEGIN or END waiting for the next word, as something other than a word came.
+	 */
+	private void code() {
+		hasCode = true;
+
+		if (pendingBegin) {
+			pendingBegin = false;
+			depth++;
+		}
+
+		if (pendingEnd) {
+			pendingEnd = false;
+			depth = Math.max(0, depth - 1);
+		}
+	}
+
+
+	private boolean isAnyOf(int start, int end, String[] keywords) {
+		for (String keyword : keywords)
+			if (is(start, end, keyword))
+				return true;
+
+		return false;
+	}
+
+
+	private boolean is(int start, int end, String keyword) {
+		if (end - start != keyword.length())
+			return false;
+
+		for (int i = 0; i < keyword.length(); i++)
+			if (Character.toUpperCase(currentSql.charAt(start + i)) != keyword.charAt(i))
+				return false;
+
+		return true;
+	}
+
+
+	private void copyChar() throws IOException {
+		char c = buffer[position++];
+
+		if (c == '\r') {
+			if (peek(0) == '\n')
+				position++;
+
+			currentSql.append(lineEnding);
+		}
+		else if (c == '\n') {
+			currentSql.append(lineEnding);
+		}
+		else {
+			currentSql.append(c);
+		}
+	}
+
+
+	private String take() {
+		int length = currentSql.length();
+
+		while (length > 0 && Character.isWhitespace(currentSql.charAt(length - 1)))
+			length--;
+
+		String statement = hasCode ? currentSql.substring(0, length) : null;
+		currentSql.setLength(0);
+		hasCode = false;
+		depth = 0;
+		pendingBegin = false;
+		pendingEnd = false;
+		routine = false;
+		previousStart = -1;
+		previousEnd = -1;
+		return statement;
+	}
+
+
+	/**
+	 * The character {@code ahead} places after the current one, reading on as needed, or -1
+	 * past the end of the script.
+	 */
+	private int peek(int ahead) throws IOException {
+		while (position + ahead >= limit) {
+			if (eof)
+				return -1;
+
+			if (position > 0) {
+				System.arraycopy(buffer, position, buffer, 0, limit - position);
+				limit -= position;
+				position = 0;
+			}
+
+			int read = reader.read(buffer, limit, buffer.length - limit);
+
+			if (read < 0) {
+				eof = true;
+				return -1;
+			}
+
+			limit += read;
+		}
+
+		return buffer[position + ahead];
+	}
+
+
+	private static boolean isIdentifierStart(char c) {
+		return Character.isLetter(c) || c == '_';
+	}
+
+
+	private static boolean isIdentifierPart(char c) {
+		return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#';
+	}
+}
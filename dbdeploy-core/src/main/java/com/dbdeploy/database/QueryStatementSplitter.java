@@ -1,11 +1,12 @@
 package com.dbdeploy.database;
 
-import org.apache.commons.lang.StringUtils;
-import org.apache.commons.lang.text.*;
-
+import java.io.*;
 import java.util.*;
+import java.util.stream.*;
 
 public class QueryStatementSplitter {
+	private static final int BUFFER_SIZE = 8192;
+
 	private String delimiter = ";";
 	private DelimiterType delimiterType = DelimiterType.normal;
 	private LineEnding lineEnding = LineEnding.platform;
@@ -15,30 +16,30 @@ public class QueryStatementSplitter {
 
 	public List<String> split(String input) {
 		List<String> statements = new ArrayList<>();
-		StrBuilder currentSql = new StrBuilder();
-
-		StrTokenizer lineTokenizer = new StrTokenizer(input);
-		lineTokenizer.setDelimiterMatcher(StrMatcher.charSetMatcher("\r\n"));
-
-		for (String line : lineTokenizer.getTokenArray()) {
-			String strippedLine = StringUtils.stripEnd(line, null);
-			if (!currentSql.isEmpty()) {
-				currentSql.append(lineEnding.get());
-			}
+		iterator(input).forEachRemaining(statements::add);
+		return statements;
+	}
 
-			currentSql.append(strippedLine);
+	public Iterator<String> iterator(CharSequence input) {
+		return iterator(new StringReader(input.toString()));
+	}
 
-			if (delimiterType.matches(strippedLine, delimiter)) {
-				statements.add(currentSql.substring(0, currentSql.length() - delimiter.length()));
-				currentSql.clear();
-			}
-		}
+	/**
+	 * Splits statements lazily as they are read from {@code reader}, so only the
+	 * statement currently being assembled is held in memory. The reader is not
+	 * closed by the iterator.
+	 */
+	public Iterator<String> iterator(Reader reader) {
+		if (delimiterType == DelimiterType.lexical)
+			return new LexicalStatementIterator(reader, delimiter, lineEnding.get());
 
-		if (!currentSql.isEmpty()) {
-			statements.add(currentSql.toString());
-		}
+		return new StatementIterator(reader, delimiter, delimiterType, lineEnding.get());
+	}
 
-		return statements;
+	public Stream<String> stream(Reader reader) {
+		return StreamSupport.stream(
+				Spliterators.spliteratorUnknownSize(iterator(reader), Spliterator.ORDERED | Spliterator.NONNULL),
+				false);
 	}
 
 	public String getDelimiter() {
@@ -60,4 +61,129 @@ public class QueryStatementSplitter {
 	public void setOutputLineEnding(LineEnding lineEnding) {
 		this.lineEnding = lineEnding;
 	}
+
+
+	/**
+	 * Copies each line straight from the read buffer into the statement being built,
+	 * joining lines with the output line ending as it goes. Empty lines are dropped
+	 * and trailing whitespace is stripped, exactly as the tokenizer-based split did.
+	 */
+	private static class StatementIterator implements Iterator<String> {
+		private final Reader reader;
+		private final String delimiter;
+		private final DelimiterType delimiterType;
+		private final String lineEnding;
+
+		private final char[] buffer = new char[BUFFER_SIZE];
+		private final StringBuilder currentSql = new StringBuilder();
+		private int position;
+		private int limit;
+		private boolean eof;
+		private String next;
+
+		StatementIterator(Reader reader, String delimiter, DelimiterType delimiterType, String lineEnding) {
+			this.reader = reader;
+			this.delimiter = delimiter;
+			this.delimiterType = delimiterType;
+			this.lineEnding = lineEnding;
+		}
+
+		@Override public boolean hasNext() {
+			if (next == null)
+				next = readStatement();
+
+			return next != null;
+		}
+
+		@Override public String next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+
+			String statement = next;
+			next = null;
+			return statement;
+		}
+
+		private String readStatement() {
+			try {
+				while (fill()) {
+					int lineStart = currentSql.length();
+
+					if (lineStart != 0)
+						currentSql.append(lineEnding);
+
+					int contentStart = currentSql.length();
+					appendLine();
+
+					if (currentSql.length() == contentStart) {
+						currentSql.setLength(lineStart);
+						continue;
+					}
+
+					stripTrailingWhitespace(contentStart);
+
+					if (delimiterType.matches(currentSql, contentStart, delimiter)) {
+						String statement = currentSql.substring(0, currentSql.length() - delimiter.length());
+						currentSql.setLength(0);
+						return statement;
+					}
+				}
+
+				if (currentSql.length() == 0)
+					return null;
+
+				String statement = currentSql.toString();
+				currentSql.setLength(0);
+				return statement;
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		private void appendLine() throws IOException {
+			while (fill()) {
+				int start = position;
+
+				while (position < limit) {
+					char c = buffer[position++];
+
+					if (c == '\r' || c == '\n') {
+						currentSql.append(buffer, start, position - start - 1);
+						return;
+					}
+				}
+
+				currentSql.append(buffer, start, position - start);
+			}
+		}
+
+		private void stripTrailingWhitespace(int contentStart) {
+			int length = currentSql.length();
+
+			while (length > contentStart && Character.isWhitespace(currentSql.charAt(length - 1)))
+				length--;
+
+			currentSql.setLength(length);
+		}
+
+		private boolean fill() throws IOException {
+			while (position == limit) {
+				if (eof)
+					return false;
+
+				int read = reader.read(buffer, 0, buffer.length);
+
+				if (read < 0) {
+					eof = true;
+					return false;
+				}
+
+				position = 0;
+				limit = read;
+			}
+
+			return true;
+		}
+	}
 }
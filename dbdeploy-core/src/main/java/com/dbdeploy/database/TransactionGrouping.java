@@ -0,0 +1,22 @@
+package com.dbdeploy.database;
+
+/**
+ * How many change scripts share a transaction when applying directly to the database.
+ * The changelog row of a script is always written in the same transaction as the script.
+ */
+public enum TransactionGrouping {
+	/**
+	 * Commit after every script
+	 */
+	script,
+
+	/**
+	 * Commit after every N scripts, where N is the commit interval
+	 */
+	count,
+
+	/**
+	 * Commit once, after the last script
+	 */
+	deploy
+}
@@ -0,0 +1,18 @@
+package com.dbdeploy.database.changelog;
+
+import java.sql.*;
+
+/**
+ * Where a {@link QueryExecuter} gets its connection from and gives it back to.
+ */
+public interface ConnectionSource extends AutoCloseable {
+
+	Connection getConnection() throws SQLException;
+
+	default void release(Connection connection) throws SQLException {
+		connection.close();
+	}
+
+	@Override default void close() throws SQLException {
+	}
+}
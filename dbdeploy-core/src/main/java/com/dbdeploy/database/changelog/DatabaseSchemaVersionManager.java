@@ -1,6 +1,6 @@
 package com.dbdeploy.database.changelog;
 
-import com.dbdeploy.AppliedChangesProvider;
+import com.dbdeploy.*;
 import com.dbdeploy.exceptions.SchemaVersionTrackingException;
 import com.dbdeploy.scripts.ChangeScript;
 
@@ -14,27 +14,55 @@ import java.util.*;
  */
 public class DatabaseSchemaVersionManager implements AppliedChangesProvider {
 
+	private static final int CHANGELOG_FETCH_SIZE = 1000;
+
 	private final QueryExecuter queryExecuter;
 	private final String changeLogTableName;
+	private String recordScriptAppliedSql;
+	private boolean checksums;
 	private CurrentTimeProvider timeProvider = new CurrentTimeProvider();
 
 
 	public DatabaseSchemaVersionManager(QueryExecuter queryExecuter, String changeLogTableName) {
 		this.queryExecuter = queryExecuter;
 		this.changeLogTableName = changeLogTableName;
+		this.recordScriptAppliedSql = recordScriptAppliedSql(changeLogTableName, false);
+	}
+
+
+	private static String recordScriptAppliedSql(String changeLogTableName, boolean checksums) {
+		return checksums
+				? "INSERT INTO " + changeLogTableName +
+				" (change_number, complete_dt, applied_by, description, checksum) VALUES (?, ?, ?, ?, ?)"
+				: "INSERT INTO " + changeLogTableName +
+				" (change_number, complete_dt, applied_by, description) VALUES (?, ?, ?, ?)";
+	}
+
+
+	/**
+	 * Whether to record the {@link ChangeScript#getChecksum() checksum} of each applied script,
+	 * which needs the nullable checksum column of the current changelog table scripts.
+	 */
+	public void setChecksums(boolean checksums) {
+		this.checksums = checksums;
+		this.recordScriptAppliedSql = recordScriptAppliedSql(changeLogTableName, checksums);
 	}
 
 
 	public List<Long> getAppliedChanges() {
+		return getAppliedChangeSet().toList();
+	}
+
+	@Override public AppliedChangeSet getAppliedChangeSet() {
 		try (ResultSet rs = queryExecuter.executeQuery(
-				"SELECT change_number FROM " + changeLogTableName + "  ORDER BY change_number")) {
+				"SELECT change_number FROM " + changeLogTableName + "  ORDER BY change_number", CHANGELOG_FETCH_SIZE)) {
 
-			List<Long> changeNumbers = new ArrayList<>();
+			AppliedChangeSet.Builder changeNumbers = new AppliedChangeSet.Builder();
 
 			while (rs.next())
 				changeNumbers.add(rs.getLong("change_number"));
 
-			return changeNumbers;
+			return changeNumbers.build();
 		}
 		catch (SQLException e) {
 			throw new SchemaVersionTrackingException(
@@ -42,19 +70,55 @@ public class DatabaseSchemaVersionManager implements AppliedChangesProvider {
 		}
 	}
 
+	/**
+	 * The recorded checksum of every applied change, null for changes applied without one.
+	 */
+	public Map<Long, String> getAppliedChecksums() {
+		try (ResultSet rs = queryExecuter.executeQuery(
+				"SELECT change_number, checksum FROM " + changeLogTableName + "  ORDER BY change_number", CHANGELOG_FETCH_SIZE)) {
+
+			Map<Long, String> checksums = new LinkedHashMap<>();
+
+			while (rs.next())
+				checksums.put(rs.getLong("change_number"), rs.getString("checksum"));
+
+			return checksums;
+		}
+		catch (SQLException e) {
+			throw new SchemaVersionTrackingException(
+					"Could not retrieve checksums from change log because: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Table holding the deploy lock for this changelog: its name followed by {@code _lock}.
+	 */
+	public String getLockTableName() {
+		return changeLogTableName + "_lock";
+	}
+
+	/**
+	 * Lock on this changelog for one deploy, taken on a connection from {@code connectionSource}
+	 * rather than the one this class queries through.
+	 */
+	public DeployLock newDeployLock(ConnectionSource connectionSource, long leaseMillis) {
+		return new DeployLock(connectionSource, getLockTableName(), leaseMillis);
+	}
+
 	public String getChangelogDeleteSql(ChangeScript script) {
 		return MessageFormat.format("DELETE FROM {0} WHERE change_number = {1}", changeLogTableName, script.getId());
 	}
 
 	public void recordScriptApplied(ChangeScript script) {
+		Timestamp completed = new Timestamp(timeProvider.now().getTime());
+
 		try {
-			queryExecuter.execute(
-					"INSERT INTO " + changeLogTableName + " (change_number, complete_dt, applied_by, description)" +
-							" VALUES (?, ?, ?, ?)",
-					script.getId(),
-					new Timestamp(timeProvider.now().getTime()),
-					queryExecuter.getDatabaseUsername(),
-					script.getDescription());
+			if (checksums)
+				queryExecuter.execute(recordScriptAppliedSql, script.getId(), completed,
+						queryExecuter.getDatabaseUsername(), script.getDescription(), script.getChecksum());
+			else
+				queryExecuter.execute(recordScriptAppliedSql, script.getId(), completed,
+						queryExecuter.getDatabaseUsername(), script.getDescription());
 		}
 		catch (SQLException e) {
 			throw new SchemaVersionTrackingException(
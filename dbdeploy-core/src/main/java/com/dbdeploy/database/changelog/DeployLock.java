@@ -0,0 +1,254 @@
+package com.dbdeploy.database.changelog;
+
+import com.dbdeploy.exceptions.SchemaVersionTrackingException;
+import com.dbdeploy.log.Log;
+
+import java.lang.management.ManagementFactory;
+import java.sql.*;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.function.LongSupplier;
+
+/**
+ * Lease on the single row of a changelog's lock table, so that of several nodes deploying to
+ * the same database at once only one applies scripts. The row names its owner and when the
+ * lease expires; the owner keeps pushing the expiry out from a heartbeat thread, and a lease
+ * left to expire (its owner died) can be taken over.
+ *
+ * <p>Expiry times are written and compared in milliseconds of each node's own clock, not the
+ * database's, because there is no portable way to do arithmetic on database timestamps. The
+ * clocks of all deploying nodes therefore have to agree to well within a lease: a node whose
+ * clock runs ahead by more than that takes over live leases. Applying scripts checks
+ * {@link #isHeld()} and confirms the lease with {@link #renew()} before every commit, so a
+ * node whose lease was taken over stops rather than applying scripts twice.
+ *
+ * <p>The lock works on a connection of its own in auto-commit mode, so that other nodes see
+ * it at once whatever the deploy connection is doing.
+ */
+public class DeployLock implements AutoCloseable {
+	private static final int LOCK_ID = 1;
+
+	private final ConnectionSource connectionSource;
+	private final String lockTableName;
+	private final String owner;
+	private final long leaseMillis;
+	private final LongSupplier clock;
+
+	private Connection connection;
+	private ScheduledExecutorService heartbeat;
+	private volatile boolean held;
+	private volatile boolean lost;
+	private long renewedAt;
+
+
+	public DeployLock(ConnectionSource connectionSource, String lockTableName, long leaseMillis) {
+		this(connectionSource, lockTableName, newOwner(), leaseMillis, System::currentTimeMillis);
+	}
+
+
+	DeployLock(ConnectionSource connectionSource, String lockTableName, String owner, long leaseMillis, LongSupplier clock) {
+		if (leaseMillis < 1)
+			throw new IllegalArgumentException("lease must be positive: " + leaseMillis);
+
+		this.connectionSource = connectionSource;
+		this.lockTableName = lockTableName;
+		this.owner = owner;
+		this.leaseMillis = leaseMillis;
+		this.clock = clock;
+	}
+
+
+	private static String newOwner() {
+		return ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID().toString().substring(0, 8);
+	}
+
+
+	public String getOwner() {
+		return owner;
+	}
+
+
+	public String getLockTableName() {
+		return lockTableName;
+	}
+
+
+	/**
+	 * Takes the lock if nobody holds it or its holder's lease has expired, and starts renewing
+	 * the lease. Returns false, without waiting, when another owner holds a live lease.
+	 */
+	public synchronized boolean tryAcquire() {
+		if (held)
+			return true;
+
+		try {
+			long now = clock.getAsLong();
+
+			if (insertLockRow(now) || takeOverExpiredLease(now)) {
+				held = true;
+				lost = false;
+				renewedAt = now;
+				startHeartbeat();
+			}
+
+			return held;
+		}
+		catch (SQLException e) {
+			throw new SchemaVersionTrackingException(
+					"Could not take the deploy lock in " + lockTableName + " because: " + e.getMessage(), e);
+		}
+	}
+
+
+	private boolean insertLockRow(long now) throws SQLException {
+		try (PreparedStatement insert = connection().prepareStatement(
+				"INSERT INTO " + lockTableName + " (lock_id, owner, expires_at) VALUES (?, ?, ?)")) {
+			insert.setInt(1, LOCK_ID);
+			insert.setString(2, owner);
+			insert.setLong(3, now + leaseMillis);
+			return insert.executeUpdate() == 1;
+		}
+		catch (SQLException e) {
+			// class 23 is an integrity constraint violation: the row of the current holder
+			if (e.getSQLState() != null && e.getSQLState().startsWith("23"))
+				return false;
+
+			throw e;
+		}
+	}
+
+
+	private boolean takeOverExpiredLease(long now) throws SQLException {
+		try (PreparedStatement update = connection().prepareStatement(
+				"UPDATE " + lockTableName + " SET owner = ?, expires_at = ? WHERE lock_id = ? AND expires_at < ?")) {
+			update.setString(1, owner);
+			update.setLong(2, now + leaseMillis);
+			update.setInt(3, LOCK_ID);
+			update.setLong(4, now);
+			return update.executeUpdate() == 1;
+		}
+	}
+
+
+	/**
+	 * Pushes the expiry of a held lease out by another lease. Returns false, and gives the
+	 * lock up, when the lease was lost to another owner in the meantime, or when the lock
+	 * table could not be reached for so long that the lease ran out.
+	 */
+	public synchronized boolean renew() {
+		if (!held)
+			return false;
+
+		long now = clock.getAsLong();
+
+		try (PreparedStatement update = connection().prepareStatement(
+				"UPDATE " + lockTableName + " SET expires_at = ? WHERE lock_id = ? AND owner = ?")) {
+			update.setLong(1, now + leaseMillis);
+			update.setInt(2, LOCK_ID);
+			update.setString(3, owner);
+
+			if (update.executeUpdate() == 1) {
+				renewedAt = now;
+				return true;
+			}
+
+			lose("Lost the deploy lock in " + lockTableName + " to another node");
+		}
+		catch (SQLException e) {
+			if (now - renewedAt < leaseMillis) {
+				Log.warn("Failed to renew the deploy lock in " + lockTableName + ": " + e);
+				return true;
+			}
+
+			lose("Lost the deploy lock in " + lockTableName + ": could not renew it before the lease ran out: " + e);
+		}
+
+		return false;
+	}
+
+
+	private void lose(String message) {
+		held = false;
+		lost = true;
+		Log.warn(message);
+	}
+
+
+	/**
+	 * Whether a lease this lock held was taken over by another owner.
+	 */
+	public boolean isLost() {
+		return lost;
+	}
+
+
+	public boolean isHeld() {
+		return held;
+	}
+
+
+	private void startHeartbeat() {
+		heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "dbdeploy-lock-heartbeat");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		long interval = Math.max(1, leaseMillis / 3);
+		heartbeat.scheduleWithFixedDelay(() -> {
+			if (!renew())
+				throw new CancellationException("deploy lock lost");
+		}, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+
+	private Connection connection() throws SQLException {
+		if (connection == null) {
+			connection = connectionSource.getConnection();
+			connection.setAutoCommit(true);
+		}
+
+		return connection;
+	}
+
+
+	/**
+	 * Stops the heartbeat and gives the lock up if it is still held.
+	 */
+	@Override public void close() throws SQLException {
+		if (heartbeat != null) {
+			heartbeat.shutdownNow();
+
+			try {
+				// a renew in flight would otherwise race the delete below
+				heartbeat.awaitTermination(leaseMillis, TimeUnit.MILLISECONDS);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			heartbeat = null;
+		}
+
+		try {
+			synchronized (this) {
+				if (held) {
+					held = false;
+
+					try (PreparedStatement delete = connection().prepareStatement(
+							"DELETE FROM " + lockTableName + " WHERE lock_id = ? AND owner = ?")) {
+						delete.setInt(1, LOCK_ID);
+						delete.setString(2, owner);
+						delete.executeUpdate();
+					}
+				}
+			}
+		}
+		finally {
+			if (connection != null) {
+				connectionSource.release(connection);
+				connection = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package com.dbdeploy.database.changelog;
+
+import java.sql.*;
+
+/**
+ * Opens a new connection every time, the way dbdeploy always has.
+ */
+public class DriverManagerConnectionSource implements ConnectionSource {
+	private final String url;
+	private final String username;
+	private final String password;
+
+	public DriverManagerConnectionSource(String url, String username, String password) {
+		this.url = url;
+		this.username = username;
+		this.password = password;
+	}
+
+	@Override public Connection getConnection() throws SQLException {
+		return DriverManager.getConnection(url, username, password);
+	}
+}
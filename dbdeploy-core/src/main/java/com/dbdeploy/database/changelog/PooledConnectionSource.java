@@ -0,0 +1,183 @@
+package com.dbdeploy.database.changelog;
+
+import java.sql.*;
+import java.util.*;
+
+/**
+ * Keeps up to {@code maxIdle} released connections open and hands them out again instead of
+ * opening new ones. Released connections are rolled back, put back in auto-commit mode and
+ * given back the catalog, schema, isolation level and read-only flag they were opened with, so
+ * a SET SCHEMA or search_path in one tree's scripts does not carry over into the next tree.
+ * A connection whose state cannot be restored is closed rather than pooled. JDBC has no
+ * portable way to reset the rest of a session, so temporary tables and session variables
+ * outlive a release; scripts relying on them should clean up after themselves. Closing the
+ * pool closes the idle connections.
+ */
+public class PooledConnectionSource implements ConnectionSource {
+	private final ConnectionSource delegate;
+	private final int maxIdle;
+	private final Deque<Connection> idle = new ArrayDeque<>();
+	private final Map<Connection, SessionState> openedWith = new IdentityHashMap<>();
+	private boolean closed;
+
+	public PooledConnectionSource(ConnectionSource delegate, int maxIdle) {
+		if (maxIdle < 1)
+			throw new IllegalArgumentException("maxIdle must be positive: " + maxIdle);
+
+		this.delegate = delegate;
+		this.maxIdle = maxIdle;
+	}
+
+	@Override public Connection getConnection() throws SQLException {
+		synchronized (this) {
+			if (closed)
+				throw new SQLException("connection pool is closed");
+
+			while (!idle.isEmpty()) {
+				Connection connection = idle.pop();
+
+				if (!connection.isClosed())
+					return connection;
+			}
+		}
+
+		Connection connection = delegate.getConnection();
+		SessionState state = SessionState.of(connection);
+
+		synchronized (this) {
+			openedWith.put(connection, state);
+		}
+
+		return connection;
+	}
+
+	@Override public void release(Connection connection) throws SQLException {
+		SessionState state;
+
+		synchronized (this) {
+			state = openedWith.get(connection);
+		}
+
+		if (connection.isClosed()) {
+			forget(connection);
+			return;
+		}
+
+		try {
+			if (!connection.getAutoCommit()) {
+				connection.rollback();
+				connection.setAutoCommit(true);
+			}
+
+			if (state == null)
+				state = SessionState.of(connection);
+			else
+				state.restore(connection);
+
+			connection.clearWarnings();
+		}
+		catch (SQLException e) {
+			forget(connection);
+			delegate.release(connection);
+			throw e;
+		}
+
+		synchronized (this) {
+			if (!closed && idle.size() < maxIdle) {
+				openedWith.put(connection, state);
+				idle.push(connection);
+				return;
+			}
+
+			openedWith.remove(connection);
+		}
+
+		delegate.release(connection);
+	}
+
+	private synchronized void forget(Connection connection) {
+		openedWith.remove(connection);
+	}
+
+	public synchronized int getIdleCount() {
+		return idle.size();
+	}
+
+	@Override public void close() throws SQLException {
+		List<Connection> connections;
+
+		synchronized (this) {
+			closed = true;
+			connections = new ArrayList<>(idle);
+			idle.clear();
+			openedWith.clear();
+		}
+
+		SQLException failure = null;
+
+		for (Connection connection : connections) {
+			try {
+				delegate.release(connection);
+			}
+			catch (SQLException e) {
+				if (failure == null)
+					failure = e;
+				else
+					failure.addSuppressed(e);
+			}
+		}
+
+		if (failure != null)
+			throw failure;
+
+		delegate.close();
+	}
+
+
+	/**
+	 * What a connection was opened with; a null catalog or schema is one the driver does not
+	 * report, and is left alone.
+	 */
+	private static final class SessionState {
+		private final String catalog;
+		private final String schema;
+		private final int isolation;
+		private final boolean readOnly;
+
+		private SessionState(String catalog, String schema, int isolation, boolean readOnly) {
+			this.catalog = catalog;
+			this.schema = schema;
+			this.isolation = isolation;
+			this.readOnly = readOnly;
+		}
+
+		static SessionState of(Connection connection) throws SQLException {
+			return new SessionState(connection.getCatalog(), schemaOf(connection),
+					connection.getTransactionIsolation(), connection.isReadOnly());
+		}
+
+		private static String schemaOf(Connection connection) throws SQLException {
+			try {
+				return connection.getSchema();
+			}
+			catch (SQLFeatureNotSupportedException | AbstractMethodError e) {
+				// drivers older than JDBC 4.1
+				return null;
+			}
+		}
+
+		void restore(Connection connection) throws SQLException {
+			if (catalog != null && !catalog.equals(connection.getCatalog()))
+				connection.setCatalog(catalog);
+
+			if (schema != null && !schema.equals(schemaOf(connection)))
+				connection.setSchema(schema);
+
+			if (connection.getTransactionIsolation() != isolation)
+				connection.setTransactionIsolation(isolation);
+
+			if (connection.isReadOnly() != readOnly)
+				connection.setReadOnly(readOnly);
+		}
+	}
+}
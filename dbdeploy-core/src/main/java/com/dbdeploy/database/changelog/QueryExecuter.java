@@ -1,42 +1,147 @@
 package com.dbdeploy.database.changelog;
 
 import java.sql.*;
+import java.util.*;
 
-public class QueryExecuter {
+/**
+ * Runs all sql against one connection. Plain statements go through a single reused
+ * {@link Statement} and parameterised ones through a small cache of prepared statements
+ * keyed by their sql; {@link #close()} releases all of them and hands the connection back to
+ * its {@link ConnectionSource}.
+ */
+public class QueryExecuter implements AutoCloseable {
+	private static final int PREPARED_STATEMENT_CACHE_SIZE = 16;
+
+	private final ConnectionSource connectionSource;
 	private final Connection connection;
 	private final String username;
 
+	private Statement statement;
+	private Statement queryStatement;
+	private final Map<String, PreparedStatement> preparedStatements =
+			new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+				@Override protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+					if (size() <= PREPARED_STATEMENT_CACHE_SIZE)
+						return false;
+
+					closeQuietly(eldest.getValue());
+					return true;
+				}
+			};
+
 	public QueryExecuter(String connectionString, String username, String password) throws SQLException {
+		this(new DriverManagerConnectionSource(connectionString, username, password), username);
+	}
+
+	public QueryExecuter(ConnectionSource connectionSource, String username) throws SQLException {
+		this.connectionSource = connectionSource;
+		this.connection = connectionSource.getConnection();
 		this.username = username;
-		connection = DriverManager.getConnection(connectionString, username, password);
 	}
 
+	QueryExecuter(Connection connection, String username) throws SQLException {
+		this(() -> connection, username);
+	}
+
+	/**
+	 * Runs a query on a statement that is reused by the next call, so the returned
+	 * {@link ResultSet} stays usable until then. It should still be closed by the caller.
+	 */
 	public ResultSet executeQuery(String sql) throws SQLException {
-		//N.B. closing statement there makes ResultSet inaccessible, which can lead to exceptions or nulls
-		//ResultSet _should_ be closed manually in calling code
-		Statement statement = connection.createStatement();
-		return statement.executeQuery(sql);
+		return executeQuery(sql, 0);
 	}
 
+	/**
+	 * As {@link #executeQuery(String)}, asking the driver to fetch {@code fetchSize} rows per
+	 * round trip; 0 leaves that to the driver.
+	 */
+	public ResultSet executeQuery(String sql, int fetchSize) throws SQLException {
+		if (queryStatement == null)
+			queryStatement = connection.createStatement();
 
-	public void execute(String sql) throws SQLException {
-		try (Statement statement = connection.createStatement()) {
-			statement.execute(sql);
-		}
+		queryStatement.setFetchSize(fetchSize);
+		return queryStatement.executeQuery(sql);
+	}
+
+
+	/**
+	 * @return the update count, or -1 when the sql produced a result set or no count
+	 */
+	public int execute(String sql) throws SQLException {
+		Statement statement = getStatement();
+
+		return statement.execute(sql) ? -1 : statement.getUpdateCount();
 	}
 
 	public void execute(String sql, Object... params) throws SQLException {
-		try (PreparedStatement statement = connection.prepareStatement(sql)) {
-			for (int i = 0; i < params.length; i++) {
-				Object param = params[i];
-				statement.setObject(i + 1, param);
-			}
-			statement.execute();
+		PreparedStatement statement = prepare(sql);
+		statement.clearParameters();
+
+		for (int i = 0; i < params.length; i++) {
+			Object param = params[i];
+			statement.setObject(i + 1, param);
+		}
+		statement.execute();
+	}
+
+	public int[] executeBatch(List<String> sqls) throws SQLException {
+		Statement statement = getStatement();
+
+		try {
+			for (String sql : sqls)
+				statement.addBatch(sql);
+
+			return statement.executeBatch();
+		}
+		finally {
+			statement.clearBatch();
 		}
 	}
 
-	public void close() throws SQLException {
-		connection.close();
+	public boolean supportsBatchUpdates() throws SQLException {
+		return connection.getMetaData().supportsBatchUpdates();
+	}
+
+	private Statement getStatement() throws SQLException {
+		if (statement == null)
+			statement = connection.createStatement();
+
+		return statement;
+	}
+
+	private PreparedStatement prepare(String sql) throws SQLException {
+		PreparedStatement prepared = preparedStatements.get(sql);
+
+		if (prepared == null) {
+			prepared = connection.prepareStatement(sql);
+			preparedStatements.put(sql, prepared);
+		}
+
+		return prepared;
+	}
+
+	@Override public void close() throws SQLException {
+		closeQuietly(statement);
+		closeQuietly(queryStatement);
+		preparedStatements.values().forEach(QueryExecuter::closeQuietly);
+
+		statement = null;
+		queryStatement = null;
+		preparedStatements.clear();
+
+		connectionSource.release(connection);
+	}
+
+	private static void closeQuietly(Statement statement) {
+		if (statement == null)
+			return;
+
+		try {
+			statement.close();
+		}
+		catch (SQLException e) {
+			// the connection is going away or the statement was evicted, nothing to recover
+		}
 	}
 
 	public void setAutoCommit(boolean autoCommitMode) throws SQLException {
@@ -47,6 +152,10 @@ public class QueryExecuter {
 		connection.commit();
 	}
 
+	public void rollback() throws SQLException {
+		connection.rollback();
+	}
+
 	public String getDatabaseUsername() {
 		return username;
 	}
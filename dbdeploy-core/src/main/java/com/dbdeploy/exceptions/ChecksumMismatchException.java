@@ -0,0 +1,19 @@
+package com.dbdeploy.exceptions;
+
+import com.dbdeploy.ChecksumReport;
+
+public class ChecksumMismatchException extends DbDeployException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final transient ChecksumReport report;
+
+	public ChecksumMismatchException(ChecksumReport report) {
+		super("applied change scripts changed since they were applied: " + report);
+		this.report = report;
+	}
+
+	public ChecksumReport getReport() {
+		return report;
+	}
+}
@@ -0,0 +1,34 @@
+package com.dbdeploy.exceptions;
+
+import com.dbdeploy.DeploymentResult;
+
+import java.util.Map;
+
+public class CompositeDeploymentException extends DbDeployException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final transient DeploymentResult result;
+
+	public CompositeDeploymentException(DeploymentResult result, Throwable firstFailure) {
+		super(firstFailure);
+		this.result = result;
+	}
+
+	public DeploymentResult getResult() {
+		return result;
+	}
+
+	@Override
+	public String getMessage() {
+		StringBuilder message = new StringBuilder("failed to deploy ").append(result.getFailed());
+
+		for (Map.Entry<String, Throwable> failure : result.getFailures().entrySet())
+			message.append("\n ").append(failure.getKey()).append(" -> ").append(failure.getValue().getMessage());
+
+		if (!result.getSkipped().isEmpty())
+			message.append("\nskipped ").append(result.getSkipped());
+
+		return message.toString();
+	}
+}
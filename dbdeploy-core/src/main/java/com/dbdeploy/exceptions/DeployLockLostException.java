@@ -0,0 +1,11 @@
+package com.dbdeploy.exceptions;
+
+public class DeployLockLostException extends DbDeployException {
+
+	private static final long serialVersionUID = 1L;
+
+	public DeployLockLostException(String lockTableName) {
+		super("Lost the deploy lock in " + lockTableName
+				+ " to another node; stopped and rolled back the scripts not yet committed");
+	}
+}
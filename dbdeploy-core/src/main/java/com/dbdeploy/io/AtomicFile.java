@@ -0,0 +1,37 @@
+package com.dbdeploy.io;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+/**
+ * Writes a file next to its destination and moves it into place, so readers such as a
+ * metrics collector never see half a file.
+ */
+public final class AtomicFile {
+
+	public interface Content {
+		void writeTo(Writer writer) throws IOException;
+	}
+
+
+	private AtomicFile() {
+	}
+
+
+	public static void write(File file, Content content) throws IOException {
+		Path target = file.toPath().toAbsolutePath();
+		Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+
+		try {
+			try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+				content.writeTo(writer);
+			}
+
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package com.dbdeploy.io;
+
+import java.io.*;
+
+/**
+ * Just enough of a streaming JSON writer for dbdeploy's reports: objects, arrays, strings,
+ * numbers, booleans and null, with commas and escaping taken care of.
+ */
+public class JsonWriter implements Closeable {
+	private final Writer out;
+	private boolean needsComma;
+
+
+	public JsonWriter(Writer out) {
+		this.out = out;
+	}
+
+
+	public JsonWriter beginObject() throws IOException {
+		separate();
+		out.write('{');
+		needsComma = false;
+		return this;
+	}
+
+	public JsonWriter endObject() throws IOException {
+		out.write('}');
+		needsComma = true;
+		return this;
+	}
+
+	public JsonWriter beginArray() throws IOException {
+		separate();
+		out.write('[');
+		needsComma = false;
+		return this;
+	}
+
+	public JsonWriter endArray() throws IOException {
+		out.write(']');
+		needsComma = true;
+		return this;
+	}
+
+	public JsonWriter name(String name) throws IOException {
+		separate();
+		writeString(name);
+		out.write(':');
+		needsComma = false;
+		return this;
+	}
+
+	public JsonWriter value(String value) throws IOException {
+		if (value == null)
+			return nullValue();
+
+		separate();
+		writeString(value);
+		needsComma = true;
+		return this;
+	}
+
+	public JsonWriter value(long value) throws IOException {
+		separate();
+		out.write(Long.toString(value));
+		needsComma = true;
+		return this;
+	}
+
+	public JsonWriter value(boolean value) throws IOException {
+		separate();
+		out.write(Boolean.toString(value));
+		needsComma = true;
+		return this;
+	}
+
+	public JsonWriter nullValue() throws IOException {
+		separate();
+		out.write("null");
+		needsComma = true;
+		return this;
+	}
+
+
+	private void separate() throws IOException {
+		if (needsComma)
+			out.write(',');
+	}
+
+
+	private void writeString(String value) throws IOException {
+		out.write('"');
+
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+
+			switch (c) {
+				case '"':
+					out.write("\\\"");
+					break;
+				case '\\':
+					out.write("\\\\");
+					break;
+				case '\n':
+					out.write("\\n");
+					break;
+				case '\r':
+					out.write("\\r");
+					break;
+				case '\t':
+					out.write("\\t");
+					break;
+				default:
+					if (c < 0x20)
+						out.write(String.format("\\u%04x", (int) c));
+					else
+						out.write(c);
+			}
+		}
+
+		out.write('"');
+	}
+
+
+	@Override public void close() throws IOException {
+		out.close();
+	}
+}
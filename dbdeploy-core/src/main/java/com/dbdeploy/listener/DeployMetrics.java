@@ -0,0 +1,140 @@
+package com.dbdeploy.listener;
+
+import com.dbdeploy.io.AtomicFile;
+import com.dbdeploy.log.Log;
+import com.dbdeploy.scripts.*;
+
+import java.io.*;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for a run, shared by every tree of a composite. Given a
+ * file, the metrics are written to it in the Prometheus text format, atomically, each time a
+ * deploy finishes, ready for the node exporter's textfile collector.
+ */
+public class DeployMetrics implements DeploymentListener {
+	private final File file;
+	private final long bytesReadAtStart = ChangeScript.getBytesRead();
+
+	private final LongAdder deploys = new LongAdder();
+	private final LongAdder deployFailures = new LongAdder();
+	private final LongAdder scriptsApplied = new LongAdder();
+	private final LongAdder scriptFailures = new LongAdder();
+	private final LongAdder statementsExecuted = new LongAdder();
+	private final LongAdder statementFailures = new LongAdder();
+	private final LongAdder rowsAffected = new LongAdder();
+
+	private final Histogram scriptDuration = new Histogram("dbdeploy_script_duration_seconds",
+			"Time to apply a change script and record it in the change log.");
+	private final Histogram statementDuration = new Histogram("dbdeploy_statement_duration_seconds",
+			"Time to execute one statement of a change script.");
+	private final Histogram changeLogReadDuration = new Histogram("dbdeploy_changelog_read_duration_seconds",
+			"Time to read the applied changes from the change log table.");
+	private final Histogram commitDuration = new Histogram("dbdeploy_commit_duration_seconds",
+			"Time to commit a transaction.");
+
+
+	public DeployMetrics() {
+		this(null);
+	}
+
+
+	public DeployMetrics(File file) {
+		this.file = file;
+	}
+
+
+	@Override public void deployFinished(String name, long nanos, Throwable failure) {
+		deploys.increment();
+
+		if (failure != null)
+			deployFailures.increment();
+
+		if (file == null)
+			return;
+
+		try {
+			synchronized (this) {
+				AtomicFile.write(file, this::writeTo);
+			}
+		}
+		catch (IOException e) {
+			Log.warn("Failed to write metrics to " + file + ": " + e);
+		}
+	}
+
+	@Override public void changeLogReadFinished(long appliedChanges, long nanos) {
+		changeLogReadDuration.observe(nanos);
+	}
+
+	@Override public void scriptFinished(ChangeScript script, long nanos, Throwable failure) {
+		scriptDuration.observe(nanos);
+
+		if (failure == null)
+			scriptsApplied.increment();
+		else
+			scriptFailures.increment();
+	}
+
+	@Override public void statementFinished(ChangeScript script, int statement, String sql, long nanos,
+	                                        int rowsAffected, SQLException failure) {
+		statementDuration.observe(nanos);
+
+		if (failure != null) {
+			statementFailures.increment();
+			return;
+		}
+
+		statementsExecuted.increment();
+
+		if (rowsAffected > 0)
+			this.rowsAffected.add(rowsAffected);
+	}
+
+	@Override public void committed(int scripts, long nanos) {
+		commitDuration.observe(nanos);
+	}
+
+
+	public long getScriptsApplied() {
+		return scriptsApplied.sum();
+	}
+
+
+	public long getStatementsExecuted() {
+		return statementsExecuted.sum();
+	}
+
+
+	/**
+	 * Bytes of change script read from disk since these metrics were created.
+	 */
+	public long getBytesRead() {
+		return ChangeScript.getBytesRead() - bytesReadAtStart;
+	}
+
+
+	public void writeTo(Writer writer) throws IOException {
+		counter(writer, "dbdeploy_deploys_total", "Deploys run.", deploys.sum());
+		counter(writer, "dbdeploy_deploy_failures_total", "Deploys that failed.", deployFailures.sum());
+		counter(writer, "dbdeploy_scripts_applied_total", "Change scripts applied.", getScriptsApplied());
+		counter(writer, "dbdeploy_script_failures_total", "Change scripts that failed.", scriptFailures.sum());
+		counter(writer, "dbdeploy_statements_executed_total", "Statements executed.", getStatementsExecuted());
+		counter(writer, "dbdeploy_statement_failures_total", "Statements that failed.", statementFailures.sum());
+		counter(writer, "dbdeploy_rows_affected_total", "Rows reported changed by statements.", rowsAffected.sum());
+		counter(writer, "dbdeploy_script_bytes_read_total", "Bytes of change script read from disk.", getBytesRead());
+
+		scriptDuration.writeTo(writer);
+		statementDuration.writeTo(writer);
+		changeLogReadDuration.writeTo(writer);
+		commitDuration.writeTo(writer);
+	}
+
+
+	private static void counter(Writer writer, String name, String help, long value) throws IOException {
+		writer.write("# HELP " + name + " " + help + "\n");
+		writer.write("# TYPE " + name + " counter\n");
+		writer.write(name + " " + value + "\n");
+	}
+}
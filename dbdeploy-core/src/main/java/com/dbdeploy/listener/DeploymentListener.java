@@ -0,0 +1,102 @@
+package com.dbdeploy.listener;
+
+import com.dbdeploy.AppliedChangeSet;
+import com.dbdeploy.scripts.ChangeScript;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Told about every step of a deploy as it happens. All methods do nothing by default, so
+ * implementations only override what they need. Durations are in nanoseconds. A listener
+ * shared by the trees of a parallel {@link com.dbdeploy.DbDeployComposite} is called from
+ * several threads at once, each tree's events always arriving on one thread.
+ */
+public interface DeploymentListener {
+
+	DeploymentListener NONE = new DeploymentListener() {
+	};
+
+
+	/**
+	 * @param name the change log table of the deploy, which is the tree name in a composite
+	 */
+	default void deployStarted(String name) {
+	}
+
+	/**
+	 * @param failure what ended the deploy, null when it succeeded
+	 */
+	default void deployFinished(String name, long nanos, Throwable failure) {
+	}
+
+
+	default void scanStarted(File directory) {
+	}
+
+	default void scanFinished(File directory, int scripts, long nanos) {
+	}
+
+
+	default void changeLogReadStarted() {
+	}
+
+	/**
+	 * @param appliedChanges number of change scripts the change log says are applied
+	 */
+	default void changeLogReadFinished(long appliedChanges, long nanos) {
+	}
+
+
+	default void planComputed(List<ChangeScript> available, AppliedChangeSet applied, List<ChangeScript> toApply) {
+	}
+
+
+	default void scriptStarted(ChangeScript script) {
+	}
+
+	/**
+	 * @param nanos including recording the script in the change log
+	 * @param failure what stopped the script, null when it succeeded
+	 */
+	default void scriptFinished(ChangeScript script, long nanos, Throwable failure) {
+	}
+
+
+	/**
+	 * @param statement 1-based position of the statement in its script
+	 */
+	default void statementStarted(ChangeScript script, int statement, String sql) {
+	}
+
+	/**
+	 * Statements sent as a JDBC batch each report an equal share of the batch's duration.
+	 *
+	 * @param rowsAffected the update count, or -1 when the driver reported none
+	 * @param failure the error from the database, null when the statement succeeded
+	 */
+	default void statementFinished(ChangeScript script, int statement, String sql, long nanos, int rowsAffected,
+	                               SQLException failure) {
+	}
+
+
+	/**
+	 * @param scripts number of scripts made permanent by this commit
+	 */
+	default void commitStarted(int scripts) {
+	}
+
+	default void committed(int scripts, long nanos) {
+	}
+
+
+	/**
+	 * @param template name of the template file, e.g. {@code hsql_apply.ftl}
+	 */
+	default void templateRenderStarted(String template, int scripts) {
+	}
+
+	default void templateRenderFinished(String template, int scripts, long nanos) {
+	}
+}
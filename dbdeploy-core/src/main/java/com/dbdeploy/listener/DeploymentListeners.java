@@ -0,0 +1,88 @@
+package com.dbdeploy.listener;
+
+import com.dbdeploy.AppliedChangeSet;
+import com.dbdeploy.scripts.ChangeScript;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Passes every event on to each registered listener, in registration order.
+ */
+public class DeploymentListeners implements DeploymentListener {
+	private final List<DeploymentListener> listeners = new CopyOnWriteArrayList<>();
+
+
+	public void add(DeploymentListener listener) {
+		listeners.add(Objects.requireNonNull(listener, "listener"));
+	}
+
+
+	public boolean isEmpty() {
+		return listeners.isEmpty();
+	}
+
+
+	@Override public void deployStarted(String name) {
+		listeners.forEach(x -> x.deployStarted(name));
+	}
+
+	@Override public void deployFinished(String name, long nanos, Throwable failure) {
+		listeners.forEach(x -> x.deployFinished(name, nanos, failure));
+	}
+
+	@Override public void scanStarted(File directory) {
+		listeners.forEach(x -> x.scanStarted(directory));
+	}
+
+	@Override public void scanFinished(File directory, int scripts, long nanos) {
+		listeners.forEach(x -> x.scanFinished(directory, scripts, nanos));
+	}
+
+	@Override public void changeLogReadStarted() {
+		listeners.forEach(DeploymentListener::changeLogReadStarted);
+	}
+
+	@Override public void changeLogReadFinished(long appliedChanges, long nanos) {
+		listeners.forEach(x -> x.changeLogReadFinished(appliedChanges, nanos));
+	}
+
+	@Override public void planComputed(List<ChangeScript> available, AppliedChangeSet applied, List<ChangeScript> toApply) {
+		listeners.forEach(x -> x.planComputed(available, applied, toApply));
+	}
+
+	@Override public void scriptStarted(ChangeScript script) {
+		listeners.forEach(x -> x.scriptStarted(script));
+	}
+
+	@Override public void scriptFinished(ChangeScript script, long nanos, Throwable failure) {
+		listeners.forEach(x -> x.scriptFinished(script, nanos, failure));
+	}
+
+	@Override public void statementStarted(ChangeScript script, int statement, String sql) {
+		listeners.forEach(x -> x.statementStarted(script, statement, sql));
+	}
+
+	@Override public void statementFinished(ChangeScript script, int statement, String sql, long nanos,
+	                                        int rowsAffected, SQLException failure) {
+		listeners.forEach(x -> x.statementFinished(script, statement, sql, nanos, rowsAffected, failure));
+	}
+
+	@Override public void commitStarted(int scripts) {
+		listeners.forEach(x -> x.commitStarted(scripts));
+	}
+
+	@Override public void committed(int scripts, long nanos) {
+		listeners.forEach(x -> x.committed(scripts, nanos));
+	}
+
+	@Override public void templateRenderStarted(String template, int scripts) {
+		listeners.forEach(x -> x.templateRenderStarted(template, scripts));
+	}
+
+	@Override public void templateRenderFinished(String template, int scripts, long nanos) {
+		listeners.forEach(x -> x.templateRenderFinished(template, scripts, nanos));
+	}
+}
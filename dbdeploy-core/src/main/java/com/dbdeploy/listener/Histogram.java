@@ -0,0 +1,86 @@
+package com.dbdeploy.listener;
+
+import java.io.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Latency histogram with fixed buckets, cheap enough to update for every statement:
+ * {@link #observe} only searches the bounds and increments, it never allocates.
+ */
+public class Histogram {
+	/**
+	 * Upper bounds in seconds, from a millisecond to five minutes.
+	 */
+	static final double[] DEFAULT_BUCKETS = {0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5, 10, 30, 60, 300};
+
+	private final String name;
+	private final String help;
+	private final double[] bucketSeconds;
+	private final long[] bucketNanos;
+	private final AtomicLongArray counts;
+	private final LongAdder sumNanos = new LongAdder();
+
+
+	public Histogram(String name, String help) {
+		this(name, help, DEFAULT_BUCKETS);
+	}
+
+
+	Histogram(String name, String help, double[] bucketSeconds) {
+		this.name = name;
+		this.help = help;
+		this.bucketSeconds = bucketSeconds.clone();
+		this.bucketNanos = new long[bucketSeconds.length];
+		this.counts = new AtomicLongArray(bucketSeconds.length + 1);
+
+		for (int i = 0; i < bucketSeconds.length; i++)
+			bucketNanos[i] = (long) (bucketSeconds[i] * 1_000_000_000L);
+	}
+
+
+	public void observe(long nanos) {
+		int bucket = 0;
+
+		while (bucket < bucketNanos.length && nanos > bucketNanos[bucket])
+			bucket++;
+
+		counts.incrementAndGet(bucket);
+		sumNanos.add(nanos);
+	}
+
+
+	public long getCount() {
+		long count = 0;
+
+		for (int i = 0; i < counts.length(); i++)
+			count += counts.get(i);
+
+		return count;
+	}
+
+
+	public long getSumNanos() {
+		return sumNanos.sum();
+	}
+
+
+	/**
+	 * Writes the histogram in the Prometheus text format, with cumulative buckets.
+	 */
+	void writeTo(Writer writer) throws IOException {
+		writer.write("# HELP " + name + " " + help + "\n");
+		writer.write("# TYPE " + name + " histogram\n");
+
+		long cumulative = 0;
+
+		for (int i = 0; i < bucketSeconds.length; i++) {
+			cumulative += counts.get(i);
+			writer.write(name + "_bucket{le=\"" + bucketSeconds[i] + "\"} " + cumulative + "\n");
+		}
+
+		cumulative += counts.get(bucketSeconds.length);
+		writer.write(name + "_bucket{le=\"+Inf\"} " + cumulative + "\n");
+		writer.write(name + "_sum " + getSumNanos() / 1e9 + "\n");
+		writer.write(name + "_count " + cumulative + "\n");
+	}
+}
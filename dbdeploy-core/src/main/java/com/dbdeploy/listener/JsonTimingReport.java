@@ -0,0 +1,262 @@
+package com.dbdeploy.listener;
+
+import com.dbdeploy.AppliedChangeSet;
+import com.dbdeploy.io.JsonWriter;
+import com.dbdeploy.log.Log;
+import com.dbdeploy.scripts.ChangeScript;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Records how long every scan, script, statement and commit took and writes it to a JSON
+ * file each time a deploy finishes, so after a composite run the file covers every tree.
+ * Only the deploys still running are held in memory: each finished deploy is appended to the
+ * file in place of its closing brackets, which are written again after it, so the file is
+ * complete JSON between deploys and writing it costs the same for the last tree as the first.
+ * It holds:
+ * <pre>
+ * {"deploys": [{"name", "durationNanos", "failure",
+ *     "scan": {"directory", "scripts", "durationNanos"},
+ *     "plan": {"available", "applied", "toApply"},
+ *     "scripts": [{"id", "name", "durationNanos", "failure",
+ *         "statements": [{"statement", "durationNanos", "rowsAffected", "failure"}]}],
+ *     "commits": [{"scripts", "durationNanos"}]}]}
+ * </pre>
+ */
+public class JsonTimingReport implements DeploymentListener {
+	private static final byte[] HEADER = "{\"deploys\":[".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] FOOTER = "]}".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] SEPARATOR = ",".getBytes(StandardCharsets.UTF_8);
+
+	private final File file;
+	private final ThreadLocal<Deploy> current = new ThreadLocal<>();
+	private boolean started;
+
+
+	public JsonTimingReport(File file) {
+		this.file = file;
+	}
+
+
+	public File getFile() {
+		return file;
+	}
+
+
+	@Override public void deployStarted(String name) {
+		current.set(new Deploy(name));
+	}
+
+	@Override public void deployFinished(String name, long nanos, Throwable failure) {
+		Deploy deploy = current();
+		deploy.nanos = nanos;
+		deploy.failure = failure;
+		current.remove();
+
+		try {
+			append(deploy);
+		}
+		catch (IOException e) {
+			Log.warn("Failed to write timing report " + file + ": " + e);
+		}
+	}
+
+	@Override public void scanFinished(File directory, int scripts, long nanos) {
+		Deploy deploy = current();
+		deploy.scanDirectory = directory;
+		deploy.scanScripts = scripts;
+		deploy.scanNanos = nanos;
+	}
+
+	@Override public void planComputed(List<ChangeScript> available, AppliedChangeSet applied, List<ChangeScript> toApply) {
+		Deploy deploy = current();
+		deploy.available = available.size();
+		deploy.applied = applied.size();
+		deploy.toApply = toApply.size();
+	}
+
+	@Override public void scriptStarted(ChangeScript script) {
+		current().scripts.add(new Script(script));
+	}
+
+	@Override public void scriptFinished(ChangeScript script, long nanos, Throwable failure) {
+		Script timing = current().lastScript();
+		timing.nanos = nanos;
+		timing.failure = failure;
+	}
+
+	@Override public void statementFinished(ChangeScript script, int statement, String sql, long nanos,
+	                                        int rowsAffected, SQLException failure) {
+		current().lastScript().statements.add(new Statement(statement, nanos, rowsAffected, failure));
+	}
+
+	@Override public void committed(int scripts, long nanos) {
+		current().commits.add(new long[]{scripts, nanos});
+	}
+
+
+	private Deploy current() {
+		Deploy deploy = current.get();
+
+		if (deploy == null) {
+			// events outside deployStarted/deployFinished, e.g. a controller driven directly
+			deployStarted("");
+			deploy = current.get();
+		}
+
+		return deploy;
+	}
+
+
+	/**
+	 * Deploys still running on other threads are left out until they finish themselves.
+	 */
+	private void append(Deploy deploy) throws IOException {
+		StringWriter section = new StringWriter();
+		deploy.write(new JsonWriter(section));
+		byte[] bytes = section.toString().getBytes(StandardCharsets.UTF_8);
+
+		synchronized (this) {
+			try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+				if (started) {
+					out.seek(out.length() - FOOTER.length);
+					out.write(SEPARATOR);
+				}
+				else {
+					out.setLength(0);
+					out.write(HEADER);
+				}
+
+				out.write(bytes);
+				out.write(FOOTER);
+				out.setLength(out.getFilePointer());
+			}
+
+			started = true;
+		}
+	}
+
+
+	private static void writeFailure(JsonWriter json, Throwable failure) throws IOException {
+		json.name("failure");
+
+		if (failure == null)
+			json.nullValue();
+		else
+			json.value(String.valueOf(failure.getMessage()));
+	}
+
+
+	private static final class Deploy {
+		private final String name;
+		private long nanos = -1;
+		private Throwable failure;
+		private File scanDirectory;
+		private int scanScripts;
+		private long scanNanos = -1;
+		private long available = -1;
+		private long applied = -1;
+		private long toApply = -1;
+		private final List<Script> scripts = new ArrayList<>();
+		private final List<long[]> commits = new ArrayList<>();
+
+		Deploy(String name) {
+			this.name = name;
+		}
+
+		Script lastScript() {
+			return scripts.get(scripts.size() - 1);
+		}
+
+		void write(JsonWriter json) throws IOException {
+			json.beginObject()
+					.name("name").value(name)
+					.name("durationNanos").value(nanos);
+			writeFailure(json, failure);
+
+			if (scanDirectory != null)
+				json.name("scan").beginObject()
+						.name("directory").value(scanDirectory.getPath())
+						.name("scripts").value(scanScripts)
+						.name("durationNanos").value(scanNanos)
+						.endObject();
+
+			if (available >= 0)
+				json.name("plan").beginObject()
+						.name("available").value(available)
+						.name("applied").value(applied)
+						.name("toApply").value(toApply)
+						.endObject();
+
+			json.name("scripts").beginArray();
+
+			for (Script script : scripts)
+				script.write(json);
+
+			json.endArray().name("commits").beginArray();
+
+			for (long[] commit : commits)
+				json.beginObject()
+						.name("scripts").value(commit[0])
+						.name("durationNanos").value(commit[1])
+						.endObject();
+
+			json.endArray().endObject();
+		}
+	}
+
+
+	private static final class Script {
+		private final long id;
+		private final String name;
+		private long nanos = -1;
+		private Throwable failure;
+		private final List<Statement> statements = new ArrayList<>();
+
+		Script(ChangeScript script) {
+			this.id = script.getId();
+			this.name = script.getDescription();
+		}
+
+		void write(JsonWriter json) throws IOException {
+			json.beginObject()
+					.name("id").value(id)
+					.name("name").value(name)
+					.name("durationNanos").value(nanos);
+			writeFailure(json, failure);
+			json.name("statements").beginArray();
+
+			for (Statement statement : statements)
+				statement.write(json);
+
+			json.endArray().endObject();
+		}
+	}
+
+
+	private static final class Statement {
+		private final int statement;
+		private final long nanos;
+		private final int rowsAffected;
+		private final SQLException failure;
+
+		Statement(int statement, long nanos, int rowsAffected, SQLException failure) {
+			this.statement = statement;
+			this.nanos = nanos;
+			this.rowsAffected = rowsAffected;
+			this.failure = failure;
+		}
+
+		void write(JsonWriter json) throws IOException {
+			json.beginObject()
+					.name("statement").value(statement)
+					.name("durationNanos").value(nanos)
+					.name("rowsAffected").value(rowsAffected);
+			writeFailure(json, failure);
+			json.endObject();
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package com.dbdeploy.log;
+
+import java.io.PrintStream;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Progress output for the whole process. Lines are queued and written to standard error by
+ * a background thread in batches, so a deploy never waits on a slow console; the queue is
+ * bounded, and a full queue makes callers wait rather than lose lines. Callers that build
+ * expensive verbose lines should check {@link #isVerbose()} first.
+ */
+public final class Log {
+	private static final int QUEUE_CAPACITY = 8192;
+	private static final long FLUSH_TIMEOUT_SECONDS = 10;
+
+	private static volatile LogLevel level = LogLevel.normal;
+	private static volatile PrintStream out = System.err;
+
+	private static final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+	private static final Thread writer = startWriter();
+
+
+	private Log() {
+	}
+
+
+	public static LogLevel getLevel() {
+		return level;
+	}
+
+
+	public static void setLevel(LogLevel level) {
+		Log.level = Objects.requireNonNull(level, "level");
+	}
+
+
+	/**
+	 * Where lines go, standard error unless changed. Lines already queued may still be
+	 * written to the previous stream.
+	 */
+	public static void setOutput(PrintStream out) {
+		Log.out = Objects.requireNonNull(out, "out");
+	}
+
+
+	public static boolean isVerbose() {
+		return level == LogLevel.verbose;
+	}
+
+
+	public static void warn(String line) {
+		enqueue(line);
+	}
+
+
+	public static void info(String line) {
+		if (level != LogLevel.quiet)
+			enqueue(line);
+	}
+
+
+	public static void verbose(String line) {
+		if (level == LogLevel.verbose)
+			enqueue(line);
+	}
+
+
+	/**
+	 * Waits until everything logged so far has been written.
+	 */
+	public static void flush() {
+		if (Thread.currentThread() == writer)
+			return;
+
+		CountDownLatch written = new CountDownLatch(1);
+
+		try {
+			queue.put(written);
+			written.await(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+
+	private static void enqueue(String line) {
+		try {
+			queue.put(line);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			out.println(line);
+		}
+	}
+
+
+	private static Thread startWriter() {
+		Thread thread = new Thread(Log::drain, "dbdeploy-log");
+		thread.setDaemon(true);
+		thread.start();
+
+		Runtime.getRuntime().addShutdownHook(new Thread(Log::flush, "dbdeploy-log-flush"));
+
+		return thread;
+	}
+
+
+	private static void drain() {
+		List<Object> batch = new ArrayList<>();
+		StringBuilder text = new StringBuilder();
+		String lineSeparator = System.lineSeparator();
+
+		while (true) {
+			try {
+				batch.add(queue.take());
+			}
+			catch (InterruptedException e) {
+				continue;
+			}
+
+			queue.drainTo(batch);
+
+			for (Object item : batch)
+				if (item instanceof String)
+					text.append((String) item).append(lineSeparator);
+
+			PrintStream target = out;
+			target.print(text);
+			target.flush();
+
+			for (Object item : batch)
+				if (item instanceof CountDownLatch)
+					((CountDownLatch) item).countDown();
+
+			batch.clear();
+			text.setLength(0);
+		}
+	}
+}
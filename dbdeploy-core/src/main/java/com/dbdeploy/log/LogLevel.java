@@ -0,0 +1,19 @@
+package com.dbdeploy.log;
+
+public enum LogLevel {
+	/**
+	 * Only warnings.
+	 */
+	quiet,
+
+	/**
+	 * Progress per script, statement and batch and the deploy summary, as dbdeploy has always
+	 * printed, less the script content cache statistics.
+	 */
+	normal,
+
+	/**
+	 * Also the script content cache statistics and the scan manifest in use.
+	 */
+	verbose,
+}
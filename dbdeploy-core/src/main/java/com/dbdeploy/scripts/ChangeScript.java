@@ -6,11 +6,20 @@ import java.io.*;
 
 public class ChangeScript implements Comparable {
 
+	/**
+	 * Threads to read script files with. Reading blocks far more than it computes, above all
+	 * on a network filesystem, so this is sized for blocking reads rather than for the
+	 * number of cores.
+	 */
+	public static final int READ_PARALLELISM = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
 	private final long id;
 	private final File file;
 	private final String description;
 	private final String encoding;
-	private static final String UNDO_MARKER = "--//@UNDO";
+	private final ChangeScriptContentCache contentCache;
+	private volatile ChangeScriptFile index;
+	private volatile String checksum;
 
 	public ChangeScript(long id) {
 		this(id, "test");
@@ -21,13 +30,19 @@ public class ChangeScript implements Comparable {
 		this.file = null;
 		this.description = description;
 		this.encoding = "UTF-8";
+		this.contentCache = null;
 	}
 
 	public ChangeScript(long id, File file, String encoding) {
+		this(id, file, encoding, ChangeScriptContentCache.shared());
+	}
+
+	public ChangeScript(long id, File file, String encoding, ChangeScriptContentCache contentCache) {
 		this.id = id;
 		this.file = file;
 		this.description = file.getName();
 		this.encoding = encoding;
+		this.contentCache = contentCache;
 	}
 
 	public File getFile() {
@@ -52,6 +67,45 @@ public class ChangeScript implements Comparable {
 		return "#" + id + ": " + description;
 	}
 
+	/**
+	 * {@link ScriptChecksum} of the file, read once; null for scripts without a file.
+	 */
+	public String getChecksum() {
+		String result = checksum;
+
+		if (result == null && file != null) {
+			try {
+				result = ScriptChecksum.of(file);
+			}
+			catch (IOException e) {
+				throw new DbDeployException("Failed to read change script file", e);
+			}
+
+			checksum = result;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Streams what {@link #getContent()} returns straight from the file, bypassing the
+	 * content cache, for callers that only need to go through it once.
+	 */
+	public Reader openContentReader() throws IOException {
+		if (file == null)
+			return new StringReader(getContent());
+
+		return getIndex().openContentReader();
+	}
+
+	/**
+	 * Bytes of change script read from disk by this JVM, whether through the content cache
+	 * or streamed by {@link #openContentReader()}.
+	 */
+	public static long getBytesRead() {
+		return ChangeScriptFile.bytesRead();
+	}
+
 	public String getContent() {
 		return getFileContents(false);
 	}
@@ -62,32 +116,34 @@ public class ChangeScript implements Comparable {
 
 	private String getFileContents(boolean onlyAfterUndoMarker) {
 		try {
-			StringBuilder content = new StringBuilder();
-			boolean foundUndoMarker = false;
-
-			try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), encoding))) {
-				for (; ; ) {
-					String str = reader.readLine();
-
-					if (str == null)
-						break;
-
-					if (str.trim().equals(UNDO_MARKER)) {
-						foundUndoMarker = true;
-						continue;
-					}
-
-					if (foundUndoMarker == onlyAfterUndoMarker) {
-						content.append(str);
-						content.append('\n');
-					}
-				}
-			}
+			if (contentCache == null)
+				return readFromIndex(onlyAfterUndoMarker);
 
-			return content.toString();
+			// the index resolves the encoding once, failing like a read would
+			return contentCache.get(file, getIndex().getCharset(), onlyAfterUndoMarker, () -> readFromIndex(onlyAfterUndoMarker));
 		}
 		catch (IOException e) {
 			throw new DbDeployException("Failed to read change script file", e);
 		}
 	}
+
+	private String readFromIndex(boolean onlyAfterUndoMarker) throws IOException {
+		ChangeScriptFile index = getIndex();
+		return onlyAfterUndoMarker ? index.readUndoContent() : index.readContent();
+	}
+
+	private ChangeScriptFile getIndex() throws UnsupportedEncodingException {
+		ChangeScriptFile result = index;
+
+		if (result == null) {
+			synchronized (this) {
+				if (index == null)
+					index = new ChangeScriptFile(file, encoding);
+
+				result = index;
+			}
+		}
+
+		return result;
+	}
 }
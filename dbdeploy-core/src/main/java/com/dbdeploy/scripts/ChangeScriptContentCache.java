@@ -0,0 +1,189 @@
+package com.dbdeploy.scripts;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, least recently used cache of decoded change script content, shared by every
+ * {@link ChangeScript} that does not get one of its own. Entries are keyed by path, last
+ * modified time, size and the charset the file was decoded with, so an edited file, or the
+ * same file read by a deploy with another encoding, is simply a miss; stale entries age out.
+ * The budget counts two bytes per cached character.
+ */
+public class ChangeScriptContentCache {
+	public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+	private static final int ENTRY_OVERHEAD_BYTES = 64;
+
+	private static final ChangeScriptContentCache SHARED = new ChangeScriptContentCache(
+			Long.getLong("dbdeploy.contentCache.maxBytes", DEFAULT_MAX_BYTES));
+
+	private final LinkedHashMap<Key, String> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long maxBytes;
+	private long currentBytes;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder bytesLoaded = new LongAdder();
+
+
+	public ChangeScriptContentCache(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+
+	public static ChangeScriptContentCache shared() {
+		return SHARED;
+	}
+
+
+	interface Loader {
+		String load() throws IOException;
+	}
+
+
+	String get(File file, Charset charset, boolean undo, Loader loader) throws IOException {
+		Path path = file.toPath().toAbsolutePath();
+		BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		Key key = new Key(path, attributes.lastModifiedTime().toMillis(), attributes.size(), charset, undo);
+
+		synchronized (this) {
+			String content = entries.get(key);
+
+			if (content != null) {
+				hits.increment();
+				return content;
+			}
+		}
+
+		misses.increment();
+		bytesLoaded.add(attributes.size());
+
+		String content = loader.load();
+		put(key, content);
+		return content;
+	}
+
+
+	private synchronized void put(Key key, String content) {
+		long cost = costOf(content);
+
+		if (cost > maxBytes)
+			return;
+
+		String previous = entries.put(key, content);
+
+		if (previous != null)
+			currentBytes -= costOf(previous);
+
+		currentBytes += cost;
+		evictToBudget();
+	}
+
+
+	private void evictToBudget() {
+		Iterator<String> eldest = entries.values().iterator();
+
+		while (currentBytes > maxBytes && eldest.hasNext()) {
+			currentBytes -= costOf(eldest.next());
+			eldest.remove();
+			evictions.increment();
+		}
+	}
+
+
+	private static long costOf(String content) {
+		return 2L * content.length() + ENTRY_OVERHEAD_BYTES;
+	}
+
+
+	public synchronized void setMaxBytes(long maxBytes) {
+		this.maxBytes = maxBytes;
+		evictToBudget();
+	}
+
+
+	public synchronized long getMaxBytes() {
+		return maxBytes;
+	}
+
+
+	public synchronized long getCurrentBytes() {
+		return currentBytes;
+	}
+
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+
+	public synchronized void clear() {
+		entries.clear();
+		currentBytes = 0;
+	}
+
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+
+	/**
+	 * Size on disk of every file read because of a miss.
+	 */
+	public long getBytesLoaded() {
+		return bytesLoaded.sum();
+	}
+
+
+	@Override public String toString() {
+		return "script content cache: " + getHits() + " hits, " + getMisses() + " misses, "
+				+ getEvictions() + " evictions, " + getCurrentBytes() + " of " + getMaxBytes() + " bytes used";
+	}
+
+
+	private static final class Key {
+		private final Path path;
+		private final long lastModified;
+		private final long size;
+		private final Charset charset;
+		private final boolean undo;
+
+		Key(Path path, long lastModified, long size, Charset charset, boolean undo) {
+			this.path = path;
+			this.lastModified = lastModified;
+			this.size = size;
+			this.charset = charset;
+			this.undo = undo;
+		}
+
+		@Override public boolean equals(Object o) {
+			if (!(o instanceof Key))
+				return false;
+
+			Key other = (Key) o;
+			return lastModified == other.lastModified && size == other.size && undo == other.undo
+					&& path.equals(other.path) && charset.equals(other.charset);
+		}
+
+		@Override public int hashCode() {
+			return Objects.hash(path, lastModified, size, charset, undo);
+		}
+	}
+}
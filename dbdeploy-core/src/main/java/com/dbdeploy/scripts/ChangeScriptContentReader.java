@@ -0,0 +1,90 @@
+package com.dbdeploy.scripts;
+
+import java.io.*;
+
+/**
+ * One section of a change script, read a line at a time: every line ends with a single
+ * {@code '\n'} and undo marker lines are left out. The do section stops at the first undo
+ * marker; the undo section is what comes after it. This is the one place lines are
+ * normalised and undo markers recognised in decoded text, whether a section is streamed
+ * or read whole, and it never holds more than one line.
+ */
+class ChangeScriptContentReader extends Reader {
+	private final BufferedReader lines;
+	private final boolean undo;
+	private boolean pastUndoMarker;
+	private String line = "";
+	private int position;
+	private boolean done;
+
+
+	/**
+	 * @param pastUndoMarker whether {@code lines} already start after the undo marker
+	 */
+	ChangeScriptContentReader(BufferedReader lines, boolean undo, boolean pastUndoMarker) {
+		this.lines = lines;
+		this.undo = undo;
+		this.pastUndoMarker = pastUndoMarker;
+	}
+
+
+	@Override public int read(char[] buffer, int offset, int length) throws IOException {
+		if (length == 0)
+			return 0;
+
+		if (!nextLineIfNeeded())
+			return -1;
+
+		int count = Math.min(length, line.length() - position);
+		line.getChars(position, position + count, buffer, offset);
+		position += count;
+		return count;
+	}
+
+
+	private boolean nextLineIfNeeded() throws IOException {
+		while (position == line.length()) {
+			if (done)
+				return false;
+
+			String next = lines.readLine();
+
+			if (next == null || (!undo && next.trim().equals(ChangeScriptFile.UNDO_MARKER))) {
+				done = true;
+				return false;
+			}
+
+			if (next.trim().equals(ChangeScriptFile.UNDO_MARKER)) {
+				pastUndoMarker = true;
+				continue;
+			}
+
+			if (undo && !pastUndoMarker)
+				continue;
+
+			line = next + '\n';
+			position = 0;
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Everything left to read, as one string.
+	 */
+	String readFully(int sizeHint) throws IOException {
+		StringBuilder content = new StringBuilder(sizeHint + 1);
+		char[] buffer = new char[8192];
+
+		for (int read = read(buffer, 0, buffer.length); read >= 0; read = read(buffer, 0, buffer.length))
+			content.append(buffer, 0, read);
+
+		return content.toString();
+	}
+
+
+	@Override public void close() throws IOException {
+		lines.close();
+	}
+}
@@ -0,0 +1,261 @@
+package com.dbdeploy.scripts;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.*;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Byte level index of a change script file. The file is scanned once for the undo marker,
+ * after which the do and undo sections are decoded straight from their byte ranges, each
+ * with a single positional read of just the section asked for. Large files are memory mapped
+ * for the scan only; the mapping is dropped once the section asked for is decoded, so an
+ * indexed script holds nothing but its offsets. Whole sections are read into one buffer, so
+ * files of {@link #MAX_LENGTH} bytes or more are refused; {@link #openContentReader()} streams
+ * them instead.
+ */
+class ChangeScriptFile {
+	static final String UNDO_MARKER = "--//@UNDO";
+
+	private static final byte[] UNDO_MARKER_BYTES = UNDO_MARKER.getBytes(StandardCharsets.US_ASCII);
+	private static final long MAPPING_THRESHOLD = 1024 * 1024;
+	private static final long MAX_LENGTH = Integer.MAX_VALUE - 8;
+	private static final LongAdder BYTES_READ = new LongAdder();
+
+	private final File file;
+	private final Charset charset;
+	private final boolean asciiCompatible;
+
+	private boolean indexed;
+	private long lastModified;
+	private long length;
+	private long undoMarkerStart;
+	private long undoContentStart;
+
+
+	ChangeScriptFile(File file, String encoding) throws UnsupportedEncodingException {
+		this.file = file;
+		this.charset = lookupCharset(encoding);
+		this.asciiCompatible = isAsciiCompatible(charset);
+	}
+
+
+	Charset getCharset() {
+		return charset;
+	}
+
+
+	String readContent() throws IOException {
+		return read(false);
+	}
+
+
+	String readUndoContent() throws IOException {
+		return read(true);
+	}
+
+
+	private synchronized String read(boolean undo) throws IOException {
+		if (!asciiCompatible)
+			return readDecodingEveryLine(undo);
+
+		if (indexed && isUnchanged())
+			return decode(readRange(undo ? undoContentStart : 0, undo ? length : undoMarkerStart), undo);
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			lastModified = file.lastModified();
+			length = channel.size();
+			indexed = false;
+			checkLength(length);
+
+			ByteBuffer bytes = length >= MAPPING_THRESHOLD
+					? channel.map(FileChannel.MapMode.READ_ONLY, 0, length)
+					: readFully(channel, 0, (int) length);
+
+			if (length >= MAPPING_THRESHOLD)
+				BYTES_READ.add(length);
+
+			findUndoMarker(bytes);
+			indexed = true;
+
+			return decode(sectionOf(bytes.duplicate(), undo), undo);
+		}
+	}
+
+
+	private boolean isUnchanged() {
+		return file.lastModified() == lastModified && file.length() == length;
+	}
+
+
+	private void checkLength(long length) throws IOException {
+		if (length >= MAX_LENGTH)
+			throw new IOException("Change script file is too large to read whole: " + file + " ("
+					+ length + " bytes); apply it with the statement pipeline, which streams it");
+	}
+
+
+	private ByteBuffer sectionOf(ByteBuffer bytes, boolean undo) {
+		bytes.limit((int) (undo ? length : undoMarkerStart));
+		bytes.position((int) (undo ? undoContentStart : 0));
+		return bytes;
+	}
+
+
+	private ByteBuffer readRange(long from, long to) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			return readFully(channel, from, (int) (to - from));
+		}
+	}
+
+
+	private static ByteBuffer readFully(FileChannel channel, long position, int size) throws IOException {
+		ByteBuffer bytes = ByteBuffer.allocate(size);
+
+		while (bytes.hasRemaining())
+			if (channel.read(bytes, position + bytes.position()) < 0)
+				break;
+
+		bytes.flip();
+		BYTES_READ.add(bytes.remaining());
+		return bytes;
+	}
+
+
+	/**
+	 * Records where the first undo marker line starts and where the line after it begins.
+	 * Works on raw bytes, which is safe because the marker and line terminators are plain
+	 * ASCII and {@link #isAsciiCompatible} charsets never use those bytes inside other characters.
+	 */
+	private void findUndoMarker(ByteBuffer bytes) {
+		int end = bytes.limit();
+		int lineStart = bytes.position();
+
+		while (lineStart < end) {
+			int lineEnd = lineStart;
+
+			while (lineEnd < end && bytes.get(lineEnd) != '\n' && bytes.get(lineEnd) != '\r')
+				lineEnd++;
+
+			int next = lineEnd + 1;
+
+			if (lineEnd + 1 < end && bytes.get(lineEnd) == '\r' && bytes.get(lineEnd + 1) == '\n')
+				next++;
+
+			if (isUndoMarker(bytes, lineStart, lineEnd)) {
+				undoMarkerStart = lineStart;
+				undoContentStart = Math.min(next, end);
+				return;
+			}
+
+			lineStart = next;
+		}
+
+		undoMarkerStart = end;
+		undoContentStart = end;
+	}
+
+
+	private static boolean isUndoMarker(ByteBuffer bytes, int start, int end) {
+		while (start < end && (bytes.get(start) & 0xff) <= ' ')
+			start++;
+
+		while (end > start && (bytes.get(end - 1) & 0xff) <= ' ')
+			end--;
+
+		if (end - start != UNDO_MARKER_BYTES.length)
+			return false;
+
+		for (int i = 0; i < UNDO_MARKER_BYTES.length; i++)
+			if (bytes.get(start + i) != UNDO_MARKER_BYTES[i])
+				return false;
+
+		return true;
+	}
+
+
+	private String decode(ByteBuffer section, boolean undo) throws IOException {
+		CharBuffer chars = charset.decode(section);
+		Reader reader = new CharArrayReader(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+
+		return new ChangeScriptContentReader(new BufferedReader(reader), undo, undo).readFully(chars.remaining());
+	}
+
+
+	private String readDecodingEveryLine(boolean undo) throws IOException {
+		checkLength(file.length());
+
+		try (ChangeScriptContentReader reader = new ChangeScriptContentReader(openLines(), undo, false)) {
+			return reader.readFully((int) file.length());
+		}
+	}
+
+
+	/**
+	 * Streams the do section straight from the file, for callers that only need to go
+	 * through it once and should not hold it all in memory.
+	 */
+	Reader openContentReader() throws IOException {
+		return new ChangeScriptContentReader(openLines(), false, false);
+	}
+
+
+	private BufferedReader openLines() throws IOException {
+		return new BufferedReader(new InputStreamReader(new CountingInputStream(new FileInputStream(file)), charset));
+	}
+
+
+	/**
+	 * Bytes of change script read from disk by this JVM, however they were read.
+	 */
+	static long bytesRead() {
+		return BYTES_READ.sum();
+	}
+
+
+	private static Charset lookupCharset(String encoding) throws UnsupportedEncodingException {
+		try {
+			return Charset.forName(encoding);
+		}
+		catch (IllegalArgumentException e) {
+			throw new UnsupportedEncodingException(encoding);
+		}
+	}
+
+
+	private static boolean isAsciiCompatible(Charset charset) {
+		String name = charset.name();
+
+		return charset.equals(StandardCharsets.UTF_8)
+				|| charset.equals(StandardCharsets.US_ASCII)
+				|| name.startsWith("ISO-8859-")
+				|| name.startsWith("windows-125");
+	}
+
+
+	private static class CountingInputStream extends FilterInputStream {
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override public int read() throws IOException {
+			int b = super.read();
+
+			if (b >= 0)
+				BYTES_READ.increment();
+
+			return b;
+		}
+
+		@Override public int read(byte[] buffer, int offset, int length) throws IOException {
+			int read = super.read(buffer, offset, length);
+
+			if (read > 0)
+				BYTES_READ.add(read);
+
+			return read;
+		}
+	}
+}
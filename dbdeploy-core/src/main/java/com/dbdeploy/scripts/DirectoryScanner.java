@@ -1,39 +1,93 @@
 package com.dbdeploy.scripts;
 
 import com.dbdeploy.exceptions.UnrecognisedFilenameException;
+import com.dbdeploy.log.Log;
 
 import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.concurrent.*;
 
 public class DirectoryScanner {
 
 	private final FilenameParser filenameParser = new FilenameParser();
 	private final String encoding;
+	private File manifestDirectory;
+	private boolean recursive;
+	private int parallelism = ChangeScript.READ_PARALLELISM;
 
 	public DirectoryScanner(String encoding) {
 		this.encoding = encoding;
 	}
 
+	/**
+	 * Directory to keep a {@link ScanManifest} per scanned directory in. With one, a directory
+	 * that has not changed since the last scan is not listed again. Null (the default) scans
+	 * every time and keeps nothing.
+	 */
+	public void setManifestDirectory(File manifestDirectory) {
+		this.manifestDirectory = manifestDirectory;
+	}
+
+	/**
+	 * Whether to take the scripts of every directory below the scanned one too, as one set of
+	 * scripts ordered by id. The directories are listed in parallel on a fork-join pool of
+	 * {@link ChangeScript#READ_PARALLELISM} threads. Hidden directories, such as those of
+	 * version control, are skipped, and so are symbolic links to directories. No
+	 * {@link ScanManifest} is kept in this mode.
+	 */
+	public void setRecursive(boolean recursive) {
+		this.recursive = recursive;
+	}
+
+	void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
 	public List<ChangeScript> getChangeScriptsForDirectory(File directory) {
 		try {
-			System.err.println("Reading change scripts from directory " + directory.getCanonicalPath() + "...");
+			Log.info("Reading change scripts from directory " + directory.getCanonicalPath() + "...");
 		}
 		catch (IOException e1) {
 			// ignore
 		}
 
+		if (recursive)
+			return scanTree(directory);
+
+		if (manifestDirectory == null)
+			return scan(directory);
+
+		File manifestFile = manifestFileFor(directory);
+		ScanManifest manifest = readManifest(manifestFile);
+		long directoryModified = directory.lastModified();
+
+		if (manifest == null || !manifest.isCurrent(directoryModified)) {
+			manifest = rescan(directory, directoryModified, manifest);
+			writeManifest(manifest, manifestFile);
+		}
+		else {
+			Log.verbose("Using scan manifest " + manifestFile);
+		}
+
+		List<ChangeScript> scripts = new ArrayList<>();
+
+		for (ScanManifest.Entry entry : manifest.getEntries())
+			scripts.add(new ChangeScript(entry.getId(), new File(directory, entry.getName()), encoding));
+
+		return scripts;
+	}
+
+	private List<ChangeScript> scan(File directory) {
 		List<ChangeScript> scripts = new ArrayList<>();
 
 		for (File file : directory.listFiles()) {
 			if (file.isFile()) {
-				String filename = file.getName();
-				try {
-					long id = filenameParser.extractIdFromFilename(filename);
+				long id = idOf(file.getName());
+
+				if (id != FilenameParser.NOT_A_SCRIPT)
 					scripts.add(new ChangeScript(id, file, encoding));
-				}
-				catch (UnrecognisedFilenameException e) {
-					// ignore
-				}
 			}
 		}
 
@@ -41,4 +95,138 @@ public class DirectoryScanner {
 
 	}
 
+	/**
+	 * Lists the directory once and stats only the entries whose names are change scripts.
+	 * Ids of names already in {@code previous} are not parsed again.
+	 */
+	private ScanManifest rescan(File directory, long directoryModified, ScanManifest previous) {
+		long scannedAt = System.currentTimeMillis();
+		List<ScanManifest.Entry> entries = new ArrayList<>();
+
+		try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory.toPath())) {
+			for (Path path : paths) {
+				String filename = path.getFileName().toString();
+				ScanManifest.Entry known = previous == null ? null : previous.get(filename);
+				long id = known != null ? known.getId() : idOf(filename);
+
+				if (id == FilenameParser.NOT_A_SCRIPT)
+					continue;
+
+				if (Files.isRegularFile(path))
+					entries.add(new ScanManifest.Entry(filename, id));
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("Failed to scan " + directory, e);
+		}
+
+		return new ScanManifest(directoryModified, scannedAt, entries);
+	}
+
+	private List<ChangeScript> scanTree(File directory) {
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+		try {
+			List<ChangeScript> scripts = pool.invoke(new TreeScan(directory.toPath()));
+
+			// tasks finish in any order; sorting by file as well makes duplicate ids come out the same every time
+			scripts.sort(Comparator.comparingLong(ChangeScript::getId).thenComparing(ChangeScript::getFile));
+			return scripts;
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Lists one directory, forking a task for each directory in it.
+	 */
+	private class TreeScan extends RecursiveTask<List<ChangeScript>> {
+		private final Path directory;
+
+		TreeScan(Path directory) {
+			this.directory = directory;
+		}
+
+		@Override protected List<ChangeScript> compute() {
+			List<ChangeScript> scripts = new ArrayList<>();
+			List<TreeScan> subdirectories = new ArrayList<>();
+
+			try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory)) {
+				for (Path path : paths) {
+					String filename = path.getFileName().toString();
+					BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+
+					if (attributes.isDirectory()) {
+						if (!filename.startsWith(".")) {
+							TreeScan subdirectory = new TreeScan(path);
+							subdirectory.fork();
+							subdirectories.add(subdirectory);
+						}
+					}
+					else if (attributes.isRegularFile() || attributes.isSymbolicLink() && Files.isRegularFile(path)) {
+						long id = idOf(filename);
+
+						if (id != FilenameParser.NOT_A_SCRIPT)
+							scripts.add(new ChangeScript(id, path.toFile(), encoding));
+					}
+				}
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException("Failed to scan " + directory, e);
+			}
+
+			for (TreeScan subdirectory : subdirectories)
+				scripts.addAll(subdirectory.join());
+
+			return scripts;
+		}
+	}
+
+	/**
+	 * Id of a change script, {@link FilenameParser#NOT_A_SCRIPT} for any other file. A number
+	 * too large for an id is taken for a typo in a script's name rather than passed over.
+	 */
+	private long idOf(String filename) {
+		long id = filenameParser.parseId(filename);
+
+		if (id == FilenameParser.OVERFLOW)
+			throw new UnrecognisedFilenameException("Change script number is too large in filename: " + filename);
+
+		return id;
+	}
+
+	private File manifestFileFor(File directory) {
+		File canonical;
+
+		try {
+			canonical = directory.getCanonicalFile();
+		}
+		catch (IOException e) {
+			canonical = directory.getAbsoluteFile();
+		}
+
+		return new File(manifestDirectory,
+				canonical.getName() + "-" + Integer.toHexString(canonical.getPath().hashCode()) + ".manifest");
+	}
+
+	private static ScanManifest readManifest(File manifestFile) {
+		try {
+			return ScanManifest.read(manifestFile);
+		}
+		catch (IOException e) {
+			Log.warn("Ignoring unreadable scan manifest " + manifestFile + ": " + e);
+			return null;
+		}
+	}
+
+	private static void writeManifest(ScanManifest manifest, File manifestFile) {
+		try {
+			manifest.write(manifestFile);
+		}
+		catch (IOException e) {
+			Log.warn("Failed to write scan manifest " + manifestFile + ": " + e);
+		}
+	}
+
 }
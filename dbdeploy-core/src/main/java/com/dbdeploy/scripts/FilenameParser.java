@@ -2,21 +2,56 @@ package com.dbdeploy.scripts;
 
 import com.dbdeploy.exceptions.UnrecognisedFilenameException;
 
-import java.util.regex.*;
-
 public class FilenameParser {
-	private final Pattern pattern;
+	/**
+	 * {@link #parseId} of a filename that does not start with a digit.
+	 */
+	public static final long NOT_A_SCRIPT = -1;
+
+	/**
+	 * {@link #parseId} of a filename whose leading digits are too many for a long.
+	 */
+	public static final long OVERFLOW = -2;
 
 	public FilenameParser() {
-		pattern = Pattern.compile("(\\d+).*");
 	}
 
 	public long extractIdFromFilename(String filename) throws UnrecognisedFilenameException {
-		Matcher matches = pattern.matcher(filename);
-		if (!matches.matches() || matches.groupCount() != 1)
+		long id = parseId(filename);
+
+		if (id == NOT_A_SCRIPT)
 			throw new UnrecognisedFilenameException("Could not extract a change script number from filename: " + filename);
 
-		return Long.parseLong(matches.group(1));
+		if (id == OVERFLOW)
+			throw new UnrecognisedFilenameException("Change script number is too large in filename: " + filename);
+
+		return id;
+	}
+
+	/**
+	 * The number the filename starts with, read straight off its characters, or
+	 * {@link #NOT_A_SCRIPT} or {@link #OVERFLOW}; neither allocates nor throws, which matters
+	 * when most files in a directory are not change scripts.
+	 */
+	public long parseId(String filename) {
+		int length = filename.length();
+		long id = 0;
+		int i = 0;
+
+		while (i < length) {
+			int digit = filename.charAt(i) - '0';
+
+			if (digit < 0 || digit > 9)
+				break;
+
+			if (id > (Long.MAX_VALUE - digit) / 10)
+				return OVERFLOW;
+
+			id = id * 10 + digit;
+			i++;
+		}
+
+		return i == 0 ? NOT_A_SCRIPT : id;
 	}
 
 }
@@ -0,0 +1,147 @@
+package com.dbdeploy.scripts;
+
+import com.dbdeploy.io.AtomicFile;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * What a {@link DirectoryScanner} found in one directory: the change scripts by name, with
+ * their ids, and the modification time of the directory itself. While the directory keeps that modification time no file
+ * has been added, removed or renamed in it, so its scripts can be taken from here without
+ * listing it again.
+ */
+public class ScanManifest {
+	private static final String HEADER = "dbdeploy scan manifest 2";
+
+	/**
+	 * On file systems with coarse timestamps a change made within the same tick as the scan
+	 * leaves the directory time as it was, so a directory changed this shortly before its
+	 * scan is listed again next time.
+	 */
+	static final long SETTLE_MILLIS = 2000;
+
+	private final long directoryModified;
+	private final long scannedAt;
+	private final Map<String, Entry> entries;
+
+
+	public ScanManifest(long directoryModified, long scannedAt, Collection<Entry> entries) {
+		this.directoryModified = directoryModified;
+		this.scannedAt = scannedAt;
+		this.entries = new LinkedHashMap<>();
+
+		for (Entry entry : entries)
+			this.entries.put(entry.getName(), entry);
+	}
+
+
+	public long getDirectoryModified() {
+		return directoryModified;
+	}
+
+
+	public long getScannedAt() {
+		return scannedAt;
+	}
+
+
+	public Collection<Entry> getEntries() {
+		return Collections.unmodifiableCollection(entries.values());
+	}
+
+
+	public Entry get(String name) {
+		return entries.get(name);
+	}
+
+
+	/**
+	 * Whether a directory last modified at {@code directoryModified} still holds exactly the
+	 * scripts in this manifest.
+	 */
+	public boolean isCurrent(long directoryModified) {
+		return directoryModified == this.directoryModified
+				&& directoryModified != 0
+				&& directoryModified <= scannedAt - SETTLE_MILLIS;
+	}
+
+
+	/**
+	 * The manifest written to {@code file}, or null when there is none or it cannot be used.
+	 */
+	public static ScanManifest read(File file) throws IOException {
+		if (!file.isFile())
+			return null;
+
+		try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			if (!HEADER.equals(reader.readLine()))
+				return null;
+
+			String[] times = split(reader.readLine(), 2);
+
+			if (times == null)
+				return null;
+
+			List<Entry> entries = new ArrayList<>();
+			String line;
+
+			while ((line = reader.readLine()) != null) {
+				String[] fields = split(line, 2);
+
+				if (fields == null)
+					return null;
+
+				entries.add(new Entry(fields[1], Long.parseLong(fields[0])));
+			}
+
+			return new ScanManifest(Long.parseLong(times[0]), Long.parseLong(times[1]), entries);
+		}
+		catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+
+	private static String[] split(String line, int fields) {
+		if (line == null)
+			return null;
+
+		String[] result = line.split("\t", fields);
+		return result.length == fields ? result : null;
+	}
+
+
+	public void write(File file) throws IOException {
+		Files.createDirectories(file.toPath().toAbsolutePath().getParent());
+
+		AtomicFile.write(file, writer -> {
+			writer.write(HEADER + "\n");
+			writer.write(directoryModified + "\t" + scannedAt + "\n");
+
+			for (Entry entry : entries.values())
+				writer.write(entry.getId() + "\t" + entry.getName() + "\n");
+		});
+	}
+
+
+	public static final class Entry {
+		private final String name;
+		private final long id;
+
+		public Entry(String name, long id) {
+			this.name = name;
+			this.id = id;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getId() {
+			return id;
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package com.dbdeploy.scripts;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * CRC32 of a change script's bytes as they are on disk, written as eight lowercase hex digits.
+ * It is computed before any decoding, so it does not depend on the encoding setting, and it
+ * is the same on every JVM dbdeploy runs on.
+ */
+public final class ScriptChecksum {
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final ThreadLocal<ByteBuffer> BUFFERS = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+
+	private ScriptChecksum() {
+	}
+
+
+	public static String of(File file) throws IOException {
+		CRC32 crc = new CRC32();
+		ByteBuffer buffer = BUFFERS.get();
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			buffer.clear();
+
+			while (channel.read(buffer) != -1) {
+				buffer.flip();
+				crc.update(buffer);
+				buffer.clear();
+			}
+		}
+
+		return format(crc.getValue());
+	}
+
+
+	static String format(long crc) {
+		String hex = Long.toHexString(crc);
+		return "00000000".substring(hex.length()) + hex;
+	}
+}
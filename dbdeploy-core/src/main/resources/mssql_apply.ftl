@@ -1,5 +1,6 @@
 [#ftl]
 [#-- @ftlvariable name="changeLogTableName" type="java.lang.String" --]
+[#-- @ftlvariable name="checksums" type="java.lang.Boolean" --]
 [#-- @ftlvariable name="scripts" type="java.util.List<com.dbdeploy.scripts.ChangeScript>" --]
 [#list scripts as script]
 
@@ -7,8 +8,8 @@
 
 ${script.content}
 
-INSERT INTO ${changeLogTableName} (change_number, complete_dt, applied_by, description)
- VALUES (${script.id?c}, getdate(), user_name(), '${script.description}')
+INSERT INTO ${changeLogTableName} (change_number, complete_dt, applied_by, description[#if checksums], checksum[/#if])
+ VALUES (${script.id?c}, getdate(), user_name(), '${script.description}'[#if checksums], '${script.checksum}'[/#if])
 GO
 
 COMMIT
@@ -2,6 +2,7 @@
 [#-- @ftlvariable name="changeLogTableName" type="java.lang.String" --]
 [#-- @ftlvariable name="delimiter" type="java.lang.String" --]
 [#-- @ftlvariable name="separator" type="java.lang.String" --]
+[#-- @ftlvariable name="checksums" type="java.lang.Boolean" --]
 [#-- @ftlvariable name="scripts" type="java.util.List<com.dbdeploy.scripts.ChangeScript>" --]
 [#list scripts as script]
 
@@ -9,8 +10,8 @@
 
 ${script.content}
 
-INSERT INTO ${changeLogTableName} (change_number, complete_dt, applied_by, description)
- VALUES (${script.id?c}, current_timestamp, current_user, '${script.description}')${separator}${delimiter}
+INSERT INTO ${changeLogTableName} (change_number, complete_dt, applied_by, description[#if checksums], checksum[/#if])
+ VALUES (${script.id?c}, current_timestamp, current_user, '${script.description}'[#if checksums], '${script.checksum}'[/#if])${separator}${delimiter}
 
 COMMIT${separator}${delimiter}
 
@@ -0,0 +1,62 @@
+package com.dbdeploy
+
+import spock.lang.*
+
+class AppliedChangeSetSpec extends Specification {
+
+	def 'should collapse contiguous change numbers into ranges'() {
+		when:
+			final set = AppliedChangeSet.of((1L..1000L) + (2000L..2999L) + [5000L])
+
+		then:
+			set.rangeCount == 3
+			set.size() == 2001
+			[set.getRangeStart(0), set.getRangeEnd(0)] == [1L, 1000L]
+			[set.getRangeStart(1), set.getRangeEnd(1)] == [2000L, 2999L]
+			[set.getRangeStart(2), set.getRangeEnd(2)] == [5000L, 5000L]
+	}
+
+
+	@Unroll
+	def 'contains(#number) is #expected'() {
+		given:
+			final set = AppliedChangeSet.of(1L, 2L, 3L, 7L, 9L, 10L)
+
+		expect:
+			set.contains(number) == expected
+
+		where:
+			number || expected
+			0L     || false
+			1L     || true
+			3L     || true
+			4L     || false
+			7L     || true
+			8L     || false
+			10L    || true
+			11L    || false
+	}
+
+
+	def 'should sort and deduplicate unordered numbers'() {
+		expect:
+			AppliedChangeSet.of(5L, 3L, 4L, 3L, 1L).toList() == [1L, 3L, 4L, 5L]
+	}
+
+
+	def 'builder should reject numbers that go backwards'() {
+		when:
+			new AppliedChangeSet.Builder().add(5).add(4)
+
+		then:
+			thrown IllegalArgumentException
+	}
+
+
+	def 'empty set has no ranges'() {
+		expect:
+			AppliedChangeSet.empty().empty
+			AppliedChangeSet.of([]).rangeCount == 0
+			AppliedChangeSet.empty().toList() == []
+	}
+}
@@ -0,0 +1,72 @@
+package com.dbdeploy
+
+import com.dbdeploy.scripts.ChangeScript
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class ChecksumVerifierSpec extends Specification {
+
+	File directory = Files.createTempDirectory("checksums").toFile()
+
+	ChecksumVerifier verifier = new ChecksumVerifier(4)
+
+
+	def cleanup() {
+		directory.deleteDir()
+	}
+
+
+	def 'should find scripts edited after they were applied'() {
+		given:
+			final scripts = (1..100).collect { script(it, "CREATE TABLE t$it (id INT);") }
+			final recorded = scripts.collectEntries { [(it.id): it.checksum] }
+			final edited = new ChangeScript(42, scripts[41].file, 'UTF-8')
+
+			scripts[41].file.text = 'DROP TABLE t42;'
+			scripts[41] = edited
+
+		when:
+			final report = verifier.verify(scripts, recorded)
+
+		then:
+			report.verified == 100
+			report.modified*.script == [edited]
+			report.modified[0].recorded == recorded[42L]
+			report.modified[0].actual == edited.checksum
+			!report.clean
+	}
+
+
+	def 'should report applied scripts that are gone and count those without a checksum'() {
+		given:
+			final scripts = [script(1, 'A'), script(2, 'B')]
+			final recorded = [1L: null, 2L: scripts[1].checksum, 3L: '00000000']
+
+		when:
+			final report = verifier.verify(scripts, recorded)
+
+		then:
+			report.verified == 1
+			report.modified.empty
+			report.missing == [3L]
+			report.unrecorded == 1
+			!report.clean
+	}
+
+
+	def 'should ignore scripts that were never applied'() {
+		given:
+			final scripts = [script(1, 'A'), script(2, 'B')]
+
+		expect:
+			verifier.verify(scripts, [1L: scripts[0].checksum]).clean
+	}
+
+
+	private ChangeScript script(long id, String content) {
+		final file = new File(directory, String.format('%03d_change.sql', id))
+		file.text = content
+		new ChangeScript(id, file, 'UTF-8')
+	}
+}
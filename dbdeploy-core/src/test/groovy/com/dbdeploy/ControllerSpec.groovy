@@ -21,7 +21,7 @@ class ControllerSpec extends Specification {
 			controller.processChangeScripts(Long.MAX_VALUE)
 
 		then:
-			1 * appliedChangesProvider.getAppliedChanges() >> []
+			1 * appliedChangesProvider.getAppliedChangeSet() >> AppliedChangeSet.empty()
 
 		and:
 			applier.changeScripts == [change1, change2, change3]
@@ -36,7 +36,7 @@ class ControllerSpec extends Specification {
 			controller.processChangeScripts(Long.MAX_VALUE)
 
 		then:
-			1 * appliedChangesProvider.getAppliedChanges() >> []
+			1 * appliedChangesProvider.getAppliedChangeSet() >> AppliedChangeSet.empty()
 	}
 
 
@@ -45,7 +45,7 @@ class ControllerSpec extends Specification {
 			controller.processChangeScripts(Long.MAX_VALUE)
 
 		then:
-			1 * appliedChangesProvider.getAppliedChanges() >> []
+			1 * appliedChangesProvider.getAppliedChangeSet() >> AppliedChangeSet.empty()
 
 		and:
 			undoApplier.changeScripts == [change3, change2, change1]
@@ -57,7 +57,7 @@ class ControllerSpec extends Specification {
 			controller.processChangeScripts Long.MAX_VALUE
 
 		then:
-			1 * appliedChangesProvider.getAppliedChanges() >> [1L]
+			1 * appliedChangesProvider.getAppliedChangeSet() >> AppliedChangeSet.of(1L)
 
 		and:
 			applier.changeScripts == [change2, change3]
@@ -69,13 +69,39 @@ class ControllerSpec extends Specification {
 			controller.processChangeScripts 2L
 
 		then:
-			1 * appliedChangesProvider.getAppliedChanges() >> []
+			1 * appliedChangesProvider.getAppliedChangeSet() >> AppliedChangeSet.empty()
 
 		and:
 			applier.changeScripts == [change1, change2]
 	}
 
 
+	def 'should plan without applying anything'() {
+		when:
+			final plan = controller.plan(Long.MAX_VALUE)
+
+		then:
+			1 * appliedChangesProvider.getAppliedChangeSet() >> AppliedChangeSet.of(1L)
+
+		and:
+			plan.applied == AppliedChangeSet.of(1L)
+			plan.available == [change1, change2, change3]
+			plan.pending == [change2, change3]
+			!plan.upToDate
+			applier.changeScripts == null
+	}
+
+
+	def 'should only apply the gaps between applied changes'() {
+		given:
+			final scripts = (1..10).collect { new ChangeScript(it) }
+
+		expect:
+			Controller.identifyChangesToApply(Long.MAX_VALUE, scripts, AppliedChangeSet.of(1L, 2L, 5L, 6L, 9L, 42L))*.id ==
+					[3L, 4L, 7L, 8L, 10L]
+	}
+
+
 	/* LIFECYCLE */
 
 	def setup() {
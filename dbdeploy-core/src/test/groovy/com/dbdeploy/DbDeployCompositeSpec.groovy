@@ -0,0 +1,212 @@
+package com.dbdeploy
+
+import com.dbdeploy.database.changelog.ConnectionSource
+import com.dbdeploy.database.changelog.PooledConnectionSource
+import com.dbdeploy.exceptions.CompositeDeploymentException
+import com.dbdeploy.exceptions.UsageException
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class DbDeployCompositeSpec extends Specification {
+
+	IDbDeploy first = Mock()
+	IDbDeploy second = Mock()
+	IDbDeploy third = Mock()
+
+	DbDeployComposite composite = new DbDeployComposite([first: first, second: second, third: third])
+
+
+	def 'should deploy every tree in order'() {
+		when:
+			composite.go()
+
+		then:
+			1 * first.go()
+
+		then:
+			1 * second.go()
+
+		then:
+			1 * third.go()
+
+		and:
+			composite.result.successful
+			composite.result.succeeded == ['first', 'second', 'third']
+	}
+
+
+	def 'should key plans by tree'() {
+		given:
+			final plan = new DeploymentPlan([], AppliedChangeSet.empty(), [])
+
+		when:
+			final plans = composite.plan()
+
+		then:
+			1 * first.plan() >> [changelog: plan]
+			1 * second.plan() >> [changelog: plan]
+			1 * third.plan() >> [changelog: plan]
+			0 * _.go()
+
+		and:
+			plans.keySet() as List == ['first', 'second', 'third']
+	}
+
+
+	def 'should stop at the first failing tree and skip the rest when sequential'() {
+		when:
+			composite.go()
+
+		then:
+			1 * second.go() >> { throw new IllegalStateException('boom') }
+			0 * third.go()
+
+		and: 'the failure comes as it was thrown, with the result kept on the composite'
+			thrown(IllegalStateException)
+			composite.result.succeeded == ['first']
+			composite.result.failed == ['second']
+			composite.result.skipped == ['third']
+	}
+
+
+	def 'should isolate failing trees when parallel'() {
+		given:
+			composite.parallelism = 2
+
+		when:
+			composite.go()
+
+		then:
+			1 * first.go() >> { throw new IllegalStateException('boom') }
+			1 * second.go()
+			1 * third.go()
+
+		and:
+			final e = thrown(CompositeDeploymentException)
+			e.result.succeeded == ['second', 'third']
+			e.result.failed == ['first']
+			e.result.skipped.empty
+			e.message.contains 'first -> boom'
+	}
+
+
+	def 'should let an error end a parallel run as it is'() {
+		given:
+			composite = new DbDeployComposite([first: first, second: second])
+			composite.parallelism = 2
+
+		when:
+			composite.go()
+
+		then:
+			1 * first.go() >> { throw new NoClassDefFoundError('org/hsqldb/jdbcDriver') }
+
+		and:
+			thrown(NoClassDefFoundError)
+	}
+
+
+	def 'should reject script directories with the same name'() {
+		when:
+			new DbDeployComposite([new File('a/deltas'), new File('b/deltas')])
+
+		then:
+			thrown(IllegalArgumentException)
+	}
+
+
+	def 'should run trees at the same time when parallel'() {
+		given:
+			final bothStarted = new CountDownLatch(2)
+			final await = { bothStarted.countDown(); assert bothStarted.await(10, TimeUnit.SECONDS) }
+			composite = new DbDeployComposite([first: first, second: second])
+			composite.parallelism = 2
+
+		when:
+			composite.go()
+
+		then:
+			1 * first.go() >> { await() }
+			1 * second.go() >> { await() }
+			composite.result.successful
+	}
+
+
+	def 'should deploy one tree at a time when writing to an output file'() {
+		given:
+			composite.parallelism = 3
+			composite.outputfile = new File('out.sql')
+
+		when:
+			composite.go()
+
+		then:
+			1 * first.go()
+
+		then:
+			1 * second.go()
+
+		then:
+			1 * third.go()
+	}
+
+
+	def 'should report usage errors as they are'() {
+		when:
+			composite.go()
+
+		then:
+			1 * first.go() >> { throw new UsageException('userid required') }
+			thrown(UsageException)
+	}
+
+
+	def 'should share one connection pool between the trees for the duration of the deploy'() {
+		given:
+			final pools = []
+			composite.url = 'jdbc:hsqldb:mem:composite'
+
+		when:
+			composite.go()
+
+		then:
+			3 * _.setConnectionSource({ it instanceof PooledConnectionSource }) >> { pools << it[0] }
+
+		then:
+			1 * first.go()
+			1 * second.go()
+			1 * third.go()
+
+		then:
+			3 * _.setConnectionSource(null)
+
+		and:
+			pools.unique { System.identityHashCode(it) }.size() == 1
+	}
+
+
+	def 'should leave a supplied connection source to its owner'() {
+		given:
+			ConnectionSource source = Mock()
+			composite.url = 'jdbc:hsqldb:mem:composite'
+			composite.connectionSource = source
+
+		when:
+			composite.go()
+
+		then:
+			0 * _.setConnectionSource(_)
+			0 * source.close()
+	}
+
+
+	def 'should reject a non-positive parallelism'() {
+		when:
+			composite.parallelism = 0
+
+		then:
+			thrown(IllegalArgumentException)
+	}
+}
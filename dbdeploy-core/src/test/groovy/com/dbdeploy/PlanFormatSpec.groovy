@@ -0,0 +1,50 @@
+package com.dbdeploy
+
+import com.dbdeploy.scripts.ChangeScript
+import spock.lang.Specification
+
+class PlanFormatSpec extends Specification {
+
+	final scripts = (1..5).collect { new ChangeScript(it, "00${it}_change.sql") }
+
+	final plans = [
+			first : new DeploymentPlan(scripts, AppliedChangeSet.of(1L, 2L, 4L), [scripts[2], scripts[4]]),
+			second: new DeploymentPlan(scripts.take(2), AppliedChangeSet.of(1L, 2L), [])
+	]
+
+
+	def 'should write plans as text'() {
+		given:
+			final out = new StringWriter()
+
+		when:
+			PlanFormat.text.write(plans, out)
+
+		then:
+			out.toString().readLines() == [
+					'first: 2 pending',
+					'  applied:   1, 2, 4',
+					'  available: 1..5',
+					'  pending:   #3: 003_change.sql',
+					'  pending:   #5: 005_change.sql',
+					'second: up to date',
+					'  applied:   1, 2',
+					'  available: 1, 2',
+			]
+	}
+
+
+	def 'should write plans as json'() {
+		given:
+			final out = new StringWriter()
+
+		when:
+			PlanFormat.json.write(plans, out)
+
+		then:
+			out.toString().trim() == '{"upToDate":false,"plans":[' +
+					'{"name":"first","upToDate":false,"applied":[[1,2],[4,4]],"available":[[1,5]],' +
+					'"pending":[{"id":3,"script":"003_change.sql"},{"id":5,"script":"005_change.sql"}]},' +
+					'{"name":"second","upToDate":true,"applied":[[1,2]],"available":[[1,2]],"pending":[]}]}'
+	}
+}
@@ -23,6 +23,12 @@ class PrettyPrinterSpec extends Specification {
 	}
 
 
+	def 'formats each range of an applied change set'() {
+		expect:
+			prettyPrinter.format(AppliedChangeSet.of(12L, 1L, 2L, 4L, 7L, 8L, 9L, 10L)) == '1, 2, 4, 7..10, 12'
+	}
+
+
 	def 'can format a change script list'() {
 		given:
 			ChangeScript change1 = new ChangeScript(1)
@@ -1,13 +1,14 @@
 package com.dbdeploy.appliers
 
-import com.dbdeploy.database.QueryStatementSplitter
+import com.dbdeploy.database.*
 import com.dbdeploy.database.changelog.*
-import com.dbdeploy.exceptions.ChangeScriptFailedException
+import com.dbdeploy.exceptions.*
+import com.dbdeploy.listener.DeploymentListener
 import com.dbdeploy.scripts.ChangeScript
 import com.dbdeploy.tools.StubChangeScript
 import spock.lang.Specification
 
-import java.sql.SQLException
+import java.sql.*
 
 class DirectToDbApplierSpec extends Specification {
 
@@ -59,6 +60,120 @@ class DirectToDbApplierSpec extends Specification {
 	}
 
 
+	def 'should send consecutive dml statements as batches when batching is enabled'() {
+		given:
+			applier.batchSize = 2
+
+		when:
+			applier.applyChangeScript(new StubChangeScript(1, 'script', 'content'))
+
+		then:
+			1 * splitter.split('content') >> ['CREATE TABLE foo (id INT)', 'INSERT INTO foo VALUES (1)',
+			                                  'insert into foo values (2)', '-- three\nINSERT INTO foo VALUES (3)']
+			1 * queryExecuter.supportsBatchUpdates() >> true
+			1 * queryExecuter.execute('CREATE TABLE foo (id INT)')
+			1 * queryExecuter.executeBatch(['INSERT INTO foo VALUES (1)', 'insert into foo values (2)'])
+			1 * queryExecuter.execute('-- three\nINSERT INTO foo VALUES (3)')
+			0 * _
+	}
+
+
+	def 'should report the failing statement of a batch by its position in the script'() {
+		given:
+			applier.batchSize = 10
+			final script = new StubChangeScript(1, 'script', 'content')
+
+		when:
+			applier.applyChangeScript script
+
+		then:
+			1 * splitter.split('content') >> ['CREATE TABLE foo (id INT)', 'INSERT 1', 'INSERT 2', 'INSERT 3']
+			1 * queryExecuter.supportsBatchUpdates() >> true
+			1 * queryExecuter.executeBatch(['INSERT 1', 'INSERT 2', 'INSERT 3']) >> {
+				throw new BatchUpdateException('dummy exception', [1] as int[])
+			}
+
+		and:
+			final e = thrown ChangeScriptFailedException
+			e.statement == 3
+			e.executedSql == 'INSERT 2'
+	}
+
+
+	def 'should execute statements one by one when the driver cannot batch'() {
+		given:
+			applier.batchSize = 10
+
+		when:
+			applier.applyChangeScript(new StubChangeScript(1, 'script', 'content'))
+
+		then:
+			1 * splitter.split('content') >> ['INSERT 1', 'INSERT 2']
+			1 * queryExecuter.supportsBatchUpdates() >> false
+			1 * queryExecuter.execute('INSERT 1')
+			1 * queryExecuter.execute('INSERT 2')
+			0 * queryExecuter.executeBatch(_)
+	}
+
+
+	def 'should commit after every script by default'() {
+		given:
+			splitter.split(_) >> []
+
+		when:
+			applier.apply(scripts(3))
+
+		then:
+			3 * queryExecuter.commit()
+			3 * schemaVersionManager.recordScriptApplied(_)
+	}
+
+
+	def 'should commit every n scripts when grouping by count'() {
+		given:
+			applier.transactionGrouping = TransactionGrouping.count
+			applier.commitInterval = 2
+			splitter.split(_) >> []
+
+		when:
+			applier.apply(scripts(5))
+
+		then:
+			3 * queryExecuter.commit()
+	}
+
+
+	def 'should commit once when grouping by deploy'() {
+		given:
+			applier.transactionGrouping = TransactionGrouping.deploy
+			splitter.split(_) >> []
+
+		when:
+			applier.apply(scripts(5))
+
+		then:
+			1 * queryExecuter.commit()
+	}
+
+
+	def 'should roll back uncommitted scripts when a script fails'() {
+		given:
+			applier.transactionGrouping = TransactionGrouping.deploy
+
+		when:
+			applier.apply(scripts(3))
+
+		then:
+			3 * splitter.split(_) >>> [['SELECT 1'], ['SELECT 2'], ['FAIL']]
+			1 * queryExecuter.execute('FAIL') >> { throw new SQLException('dummy exception') }
+			1 * queryExecuter.rollback()
+			0 * queryExecuter.commit()
+
+		and:
+			thrown ChangeScriptFailedException
+	}
+
+
 	def 'should insert to schema version table'() {
 		given:
 			final changeScript = new ChangeScript(1, 'script.sql')
@@ -81,6 +196,116 @@ class DirectToDbApplierSpec extends Specification {
 	}
 
 
+	def 'should report a failed commit with its cause'() {
+		given:
+			final failure = new SQLException('connection reset')
+			queryExecuter.commit() >> { throw failure }
+
+		when:
+			applier.commitTransaction()
+
+		then:
+			final e = thrown(DbDeployException)
+			e.cause.is(failure)
+	}
+
+
+	def 'should tell the listener about every script, statement and commit'() {
+		given:
+			DeploymentListener listener = Mock()
+			applier.listener = listener
+			final script = new StubChangeScript(1, 'script', 'INSERT 1; UPDATE 2')
+			splitter.split(_) >> ['INSERT 1', 'UPDATE 2']
+
+		when:
+			applier.apply([script])
+
+		then:
+			1 * listener.scriptStarted(script)
+
+		then:
+			1 * listener.statementStarted(script, 1, 'INSERT 1')
+			1 * queryExecuter.execute('INSERT 1') >> 1
+			1 * listener.statementFinished(script, 1, 'INSERT 1', _, 1, null)
+
+		then:
+			1 * listener.statementStarted(script, 2, 'UPDATE 2')
+			1 * queryExecuter.execute('UPDATE 2') >> 3
+			1 * listener.statementFinished(script, 2, 'UPDATE 2', _, 3, null)
+
+		then:
+			1 * listener.scriptFinished(script, _, null)
+
+		then:
+			1 * listener.committed(1, _)
+	}
+
+
+	def 'should report failing statements and scripts to the listener'() {
+		given:
+			DeploymentListener listener = Mock()
+			applier.listener = listener
+			final script = new StubChangeScript(1, 'script', 'FAIL')
+			final failure = new SQLException('dummy exception')
+
+		when:
+			applier.apply([script])
+
+		then:
+			thrown ChangeScriptFailedException
+			1 * splitter.split(_) >> ['FAIL']
+			1 * queryExecuter.execute('FAIL') >> { throw failure }
+			1 * listener.statementFinished(script, 1, 'FAIL', _, -1, failure)
+			1 * listener.scriptFinished(script, _, { it instanceof ChangeScriptFailedException })
+			0 * listener.committed(*_)
+	}
+
+
+	def 'should stream statements of all scripts through a bounded pipeline'() {
+		given:
+			applier = new DirectToDbApplier(queryExecuter, schemaVersionManager, new QueryStatementSplitter())
+			applier.pipelineDepth = 1
+			final first = new StubChangeScript(1, 'first', 'CREATE TABLE foo (id INT);\nINSERT 1;\n')
+			final second = new StubChangeScript(2, 'second', 'INSERT 2;\nINSERT 3')
+
+		when:
+			applier.apply([first, second])
+
+		then:
+			1 * queryExecuter.execute('CREATE TABLE foo (id INT)')
+			1 * queryExecuter.execute('INSERT 1')
+			1 * schemaVersionManager.recordScriptApplied(first)
+
+		then:
+			1 * queryExecuter.execute('INSERT 2')
+			1 * queryExecuter.execute('INSERT 3')
+			1 * schemaVersionManager.recordScriptApplied(second)
+	}
+
+
+	def 'should fail the script whose file cannot be read when pipelining'() {
+		given:
+			applier.pipelineDepth = 4
+			final script = new ChangeScript(1, new File('does-not-exist.sql'), 'UTF-8')
+
+		when:
+			applier.apply([script])
+
+		then:
+			final e = thrown DbDeployException
+			e.cause instanceof FileNotFoundException
+			1 * queryExecuter.rollback()
+			0 * schemaVersionManager.recordScriptApplied(_)
+	}
+
+
+	/* HELPERS */
+
+	List<ChangeScript> scripts(int count) {
+		(1..count).collect { new StubChangeScript(it, "script $it", "SELECT $it") as ChangeScript }
+	}
+
+
 	/* LIFECYCLE */
 
 	def setup() {
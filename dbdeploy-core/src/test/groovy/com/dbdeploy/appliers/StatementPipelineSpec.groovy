@@ -0,0 +1,38 @@
+package com.dbdeploy.appliers
+
+import com.dbdeploy.database.QueryStatementSplitter
+import com.dbdeploy.tools.StubChangeScript
+import spock.lang.Specification
+
+class StatementPipelineSpec extends Specification {
+
+	def 'should hand over statements larger than the character budget one at a time'() {
+		given:
+			final big = 'INSERT ' + 'x' * 100
+			final script = new StubChangeScript(1, 'big', "$big;\n$big;\nINSERT 3;\n")
+			final pipeline = new StatementPipeline([script], new QueryStatementSplitter(), 16, 10)
+
+		when:
+			final statements = pipeline.nextScript().collect()
+
+		then:
+			statements == [big, big, 'INSERT 3']
+
+		cleanup:
+			pipeline.close()
+	}
+
+
+	def 'should stop the reader on close'() {
+		given:
+			final scripts = (1..100).collect { new StubChangeScript(it, "script $it", "INSERT $it;\n" * 100) }
+			final pipeline = new StatementPipeline(scripts, new QueryStatementSplitter(), 1)
+			pipeline.nextScript().next()
+
+		when:
+			pipeline.close()
+
+		then:
+			!pipeline.reader.alive
+	}
+}
@@ -2,6 +2,7 @@ package com.dbdeploy.appliers
 
 import com.dbdeploy.database.DelimiterType
 import com.dbdeploy.exceptions.UsageException
+import com.dbdeploy.tools.StubChangeScript
 import org.apache.commons.io.output.NullWriter
 import spock.lang.Specification
 
@@ -20,4 +21,59 @@ class TemplateBasedApplierSpec extends Specification {
 			e.message == "Could not find template named some_complete_rubbish_apply.ftl\n" +
 					"Check that you have got the name of the database syntax correct."
 	}
+
+
+	def 'should render each script separately and flush once when streaming'() {
+		given:
+			int flushes = 0
+			final writer = new StringWriter() {
+				@Override void flush() { flushes++ }
+			}
+			final applier = new TemplateBasedApplier(writer, "hsql", "changelog", ";", DelimiterType.normal, null)
+			applier.streaming = true
+
+		when:
+			applier.apply([new StubChangeScript(1, "001_a.sql", "-- one"), new StubChangeScript(2, "002_b.sql", "-- two")])
+
+		then:
+			flushes == 1
+			writer.toString().count('-- START CHANGE SCRIPT') == 2
+			writer.toString().indexOf('-- one') < writer.toString().indexOf('-- two')
+	}
+
+
+	def 'should only record checksums when asked to'() {
+		given:
+			final writer = new StringWriter()
+			final applier = new TemplateBasedApplier(writer, "hsql", "changelog", ";", DelimiterType.normal, null)
+			applier.checksums = checksums
+
+		when:
+			applier.apply([new StubChangeScript(1, "001_a.sql", "-- one") {
+				@Override String getChecksum() { '0a1b2c3d' }
+			}])
+
+		then:
+			writer.toString().contains(expected)
+
+		where:
+			checksums | expected
+			false     | "(change_number, complete_dt, applied_by, description)\n VALUES (1, CURRENT_TIMESTAMP, USER(), '001_a.sql');"
+			true      | "(change_number, complete_dt, applied_by, description, checksum)\n VALUES (1, CURRENT_TIMESTAMP, USER(), '001_a.sql', '0a1b2c3d');"
+	}
+
+
+	def 'should write streaming output in the requested charset'() {
+		given:
+			final file = File.createTempFile("dbdeploy", ".sql")
+			file.deleteOnExit()
+
+		when:
+			TemplateBasedApplier.openStreamingWriter(file, java.nio.charset.StandardCharsets.UTF_16LE).withWriter {
+				it.write 'ünïcode'
+			}
+
+		then:
+			file.getText('UTF-16LE') == 'ünïcode'
+	}
 }
@@ -0,0 +1,78 @@
+package com.dbdeploy.appliers
+
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class TemplateCacheSpec extends Specification {
+
+	TemplateCache cache = new TemplateCache()
+	File directory = Files.createTempDirectory("templates").toFile()
+
+
+	def cleanup() {
+		directory.deleteDir()
+	}
+
+
+	def 'should compile a template once per directory, dbms and mode'() {
+		given:
+			template('custom_apply.ftl') << 'apply'
+			template('custom_undo.ftl') << 'undo'
+
+		when:
+			final first = cache.forDirectory(directory).get('custom', ApplyMode.DO)
+			final second = cache.forDirectory(new File(directory.path)).get('custom', ApplyMode.DO)
+			final undo = cache.forDirectory(directory).get('custom', ApplyMode.UNDO)
+
+		then:
+			second.is first
+			!undo.is(first)
+			cache.hits == 1
+			cache.misses == 2
+	}
+
+
+	def 'should recompile a template whose file changed'() {
+		given:
+			final file = template('custom_apply.ftl')
+			file.text = 'before'
+			final before = cache.forDirectory(directory).get('custom', ApplyMode.DO)
+
+		when:
+			file.text = 'after'
+			file.lastModified = file.lastModified() + 2000
+			final after = cache.forDirectory(directory).get('custom', ApplyMode.DO)
+
+		then:
+			!after.is(before)
+			render(after) == 'after'
+	}
+
+
+	def 'should fall back to the bundled templates'() {
+		expect:
+			cache.forDirectory(directory).get('hsql', ApplyMode.UNDO) != null
+	}
+
+
+	def 'should report a missing template as not found'() {
+		when:
+			cache.forDirectory(directory).get('some_complete_rubbish', ApplyMode.DO)
+
+		then:
+			thrown FileNotFoundException
+	}
+
+
+	File template(String name) {
+		new File(directory, name)
+	}
+
+
+	String render(freemarker.template.Template template) {
+		final writer = new StringWriter()
+		template.process([:], writer)
+		writer.toString()
+	}
+}
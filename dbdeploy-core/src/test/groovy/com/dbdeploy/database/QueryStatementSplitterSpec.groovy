@@ -1,5 +1,6 @@
 package com.dbdeploy.database
 
+import com.dbdeploy.exceptions.DbDeployException
 import org.apache.commons.lang.SystemUtils
 import spock.lang.*
 
@@ -92,6 +93,156 @@ class QueryStatementSplitterSpec extends Specification {
 	}
 
 
+	def 'should split lazily from a reader'() {
+		given:
+			splitter.outputLineEnding = LineEnding.lf
+
+		when:
+			final statements = splitter.iterator(new StringReader('SELECT 1;\nSELECT\r\n2;\nSELECT 3'))
+
+		then:
+			statements.next() == 'SELECT 1'
+			statements.next() == 'SELECT\n2'
+			statements.next() == 'SELECT 3'
+			!statements.hasNext()
+	}
+
+
+	def 'should stream statements that span read buffer boundaries'() {
+		given:
+			final script = (1..5000).collect { "INSERT INTO foo VALUES ($it);" }.join('\n')
+
+		when:
+			final statements = splitter.stream(new StringReader(script)).collect()
+
+		then:
+			statements.size() == 5000
+			statements.last() == 'INSERT INTO foo VALUES (5000)'
+	}
+
+
+	def 'should drop empty lines but keep whitespace only lines'() {
+		given:
+			splitter.outputLineEnding = LineEnding.lf
+
+		expect:
+			splitter.split('SELECT\n\n  \n1;\n\n') == ['SELECT\n\n1']
+	}
+
+
+	def 'lexical splitting should ignore delimiters in literals and comments'() {
+		given:
+			splitter.delimiterType = DelimiterType.lexical
+			splitter.outputLineEnding = LineEnding.lf
+
+		expect:
+			splitter.split(script) == statements
+
+		where:
+			script                                           || statements
+			'SELECT 1; SELECT 2'                             || ['SELECT 1', 'SELECT 2']
+			"SELECT ';\n'; SELECT 'it''s;'"                  || ["SELECT ';\n'", "SELECT 'it''s;'"]
+			"SELECT E'it\\'s;'; SELECT 2"                    || ["SELECT E'it\\'s;'", 'SELECT 2']
+			'SELECT "a;b", `c;d`;'                           || ['SELECT "a;b", `c;d`']
+			'SELECT 1 -- one;\n;SELECT 2 /* two;\n */;'      || ['SELECT 1 -- one', 'SELECT 2 /* two;\n */']
+			'SELECT $1;\nSELECT $$a;b$$;'                     || ['SELECT $1', 'SELECT $$a;b$$']
+	}
+
+
+	def 'lexical splitting should keep dollar quoted bodies and blocks together'() {
+		given:
+			splitter.delimiterType = DelimiterType.lexical
+			splitter.outputLineEnding = LineEnding.lf
+
+		expect:
+			splitter.split(script) == statements
+
+		where:
+			script << [
+					'CREATE FUNCTION f() RETURNS int AS $body$\nBEGIN\n  RETURN 1;\nEND;\n$body$ LANGUAGE plpgsql;\nSELECT 1;',
+					'CREATE TRIGGER t AFTER INSERT ON a BEGIN\n  UPDATE b SET x = CASE WHEN y THEN 1 ELSE 2 END;\nEND;\nSELECT 1',
+					'CREATE PROCEDURE p() BEGIN\n  IF x THEN SELECT 1; END IF;\nEND;\nSELECT 1',
+			]
+			statements << [
+					['CREATE FUNCTION f() RETURNS int AS $body$\nBEGIN\n  RETURN 1;\nEND;\n$body$ LANGUAGE plpgsql', 'SELECT 1'],
+					['CREATE TRIGGER t AFTER INSERT ON a BEGIN\n  UPDATE b SET x = CASE WHEN y THEN 1 ELSE 2 END;\nEND', 'SELECT 1'],
+					['CREATE PROCEDURE p() BEGIN\n  IF x THEN SELECT 1; END IF;\nEND', 'SELECT 1'],
+			]
+	}
+
+
+	def 'lexical splitting should read BEGIN as a name where no block can start'() {
+		given:
+			splitter.delimiterType = DelimiterType.lexical
+			splitter.outputLineEnding = LineEnding.lf
+
+		expect:
+			splitter.split(script) == statements
+
+		where:
+			script                                                              || statements
+			'CREATE TABLE t (id int, begin date, end date);\nSELECT begin FROM t;' || ['CREATE TABLE t (id int, begin date, end date)', 'SELECT begin FROM t']
+			'SELECT t.begin FROM t; SELECT 2'                                  || ['SELECT t.begin FROM t', 'SELECT 2']
+			'CREATE PROCEDURE p() BEGIN\n  SELECT begin FROM t;\nEND;\nSELECT 1'  || ['CREATE PROCEDURE p() BEGIN\n  SELECT begin FROM t;\nEND', 'SELECT 1']
+			'BEGIN\n  IF x THEN BEGIN INSERT 1; END; END IF;\nEND;\nSELECT 1'     || ['BEGIN\n  IF x THEN BEGIN INSERT 1; END; END IF;\nEND', 'SELECT 1']
+	}
+
+
+	def 'lexical splitting should fail when a script ends inside a block'() {
+		given:
+			splitter.delimiterType = DelimiterType.lexical
+
+		when:
+			splitter.split('SELECT 1;\nBEGIN\n  INSERT 1;\n  INSERT 2;')
+
+		then:
+			thrown DbDeployException
+	}
+
+
+	def 'lexical splitting should not take a backslash for an escape outside E strings'() {
+		given:
+			splitter.delimiterType = DelimiterType.lexical
+
+		expect:
+			splitter.split("SELECT 'C:\\'; SELECT 2") == ["SELECT 'C:\\'", 'SELECT 2']
+			splitter.split("SELECT 'it\\'s;'; SELECT 2") == ["SELECT 'it\\'s", "'; SELECT 2"]
+	}
+
+
+	def 'lexical splitting should treat transaction control as plain statements'() {
+		given:
+			splitter.delimiterType = DelimiterType.lexical
+
+		expect:
+			splitter.split('BEGIN;\nINSERT 1;\nCOMMIT;\nBEGIN TRANSACTION;\nINSERT 2;\nEND;') ==
+					['BEGIN', 'INSERT 1', 'COMMIT', 'BEGIN TRANSACTION', 'INSERT 2', 'END']
+	}
+
+
+	def 'lexical splitting should skip statements made only of comments'() {
+		given:
+			splitter.delimiterType = DelimiterType.lexical
+
+		expect:
+			splitter.split('-- header;\n/* nothing */;\n\nSELECT 1;\n-- trailer') == ['SELECT 1']
+	}
+
+
+	def 'lexical splitting should stream statements that span read buffer boundaries'() {
+		given:
+			splitter.delimiterType = DelimiterType.lexical
+			final script = (1..5000).collect { "INSERT INTO foo VALUES ($it, 'a;b');" }.join('\n')
+
+		when:
+			final statements = splitter.stream(new StringReader(script)).collect()
+
+		then:
+			statements.size() == 5000
+			statements.last() == "INSERT INTO foo VALUES (5000, 'a;b')"
+	}
+
+
 	/* LIFECYCLE */
 
 	def setup() {
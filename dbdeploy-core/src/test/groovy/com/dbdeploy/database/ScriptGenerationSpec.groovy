@@ -1,5 +1,6 @@
 package com.dbdeploy.database
 
+import com.dbdeploy.AppliedChangeSet
 import com.dbdeploy.Controller
 import com.dbdeploy.appliers.TemplateBasedApplier
 import com.dbdeploy.database.changelog.DatabaseSchemaVersionManager
@@ -11,20 +12,20 @@ import spock.lang.*
 class ScriptGenerationSpec extends Specification {
 
 	@Unroll
-	def 'generate consolidated changes script for all databases and compare against template, syntax: `#syntax`'() {
+	def 'generate consolidated changes script for all databases and compare against template, syntax: `#syntax`, streaming: #streaming'() {
 		when:
 			printf "Testing syntax %s\n", syntax
-			runIntegratedTestAndConfirmOutputResults syntax
+			runIntegratedTestAndConfirmOutputResults syntax, streaming
 
 		then:
 			noExceptionThrown()
 
 		where:
-			syntax << ["hsql", "mssql", "mysql", "ora", "syb-ase", "db2", "pgsql"]
+			[syntax, streaming] << [["hsql", "mssql", "mysql", "ora", "syb-ase", "db2", "pgsql"], [false, true]].combinations()
 	}
 
 
-	void runIntegratedTestAndConfirmOutputResults(String syntaxName) throws Exception {
+	void runIntegratedTestAndConfirmOutputResults(String syntaxName, boolean streaming) throws Exception {
 
 		final writer = new StringWriter()
 
@@ -37,6 +38,7 @@ class ScriptGenerationSpec extends Specification {
 
 		final schemaManager = new StubSchemaManager()
 		final applier = new TemplateBasedApplier(writer, syntaxName, "changelog", ";", DelimiterType.normal, null)
+		applier.streaming = streaming
 		final controller = new Controller(changeScriptRepository, schemaManager, applier, null)
 
 		controller.processChangeScripts(Long.MAX_VALUE)
@@ -88,5 +90,7 @@ class ScriptGenerationSpec extends Specification {
 		StubSchemaManager() { super(null, "changelog") }
 
 		@Override List<Long> getAppliedChanges() throws SchemaVersionTrackingException { [] }
+
+		@Override AppliedChangeSet getAppliedChangeSet() throws SchemaVersionTrackingException { AppliedChangeSet.empty() }
 	}
 }
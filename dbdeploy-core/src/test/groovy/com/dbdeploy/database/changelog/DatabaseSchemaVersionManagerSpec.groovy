@@ -50,6 +50,52 @@ class DatabaseSchemaVersionManagerSpec extends Specification {
 	}
 
 
+	def 'should record the checksum of the script when asked to'() {
+		given:
+			final file = File.createTempFile('099_change', '.sql')
+			file.deleteOnExit()
+			file.text = 'CREATE TABLE t (id INT);'
+
+			final scriptWithFile = new ChangeScript(99, file, 'UTF-8')
+			schemaVersionManager.checksums = true
+
+		when:
+			schemaVersionManager.recordScriptApplied scriptWithFile
+
+		then:
+			1 * queryExecuter.getDatabaseUsername() >> 'BANANA'
+			1 * timeProvider.now() >> now
+			1 * queryExecuter.execute(expected, 99L, new Timestamp(now.time), 'BANANA', file.name, crc32(file))
+
+		where:
+			now = new Date()
+			expected = "INSERT INTO changelog (change_number, complete_dt, applied_by, description, checksum) " +
+					"VALUES (?, ?, ?, ?, ?)"
+	}
+
+
+	def 'should read recorded checksums including changes applied without one'() {
+		when:
+			final checksums = schemaVersionManager.appliedChecksums
+
+		then:
+			1 * queryExecuter.executeQuery(startsWith("SELECT change_number, checksum FROM changelog "), 1000) >> expectedResultSet
+			3 * expectedResultSet.next() >>> [true, true, false]
+			2 * expectedResultSet.getLong('change_number') >>> [1L, 2L]
+			2 * expectedResultSet.getString('checksum') >>> [null, '0a1b2c3d']
+
+		and:
+			checksums == [1L: null, 2L: '0a1b2c3d']
+	}
+
+
+	private static String crc32(File file) {
+		final crc = new java.util.zip.CRC32()
+		crc.update(file.bytes)
+		String.format('%08x', crc.value)
+	}
+
+
 	def 'should generate sql string to delete changelog table after undo script application'() {
 		when:
 			final sql = schemaVersionManager.getChangelogDeleteSql(script)
@@ -67,7 +113,7 @@ class DatabaseSchemaVersionManagerSpec extends Specification {
 			manager.appliedChanges
 
 		then:
-			1 * queryExecuter.executeQuery(startsWith("SELECT change_number FROM $changelogTableName ")) >> expectedResultSet
+			1 * queryExecuter.executeQuery(startsWith("SELECT change_number FROM $changelogTableName "), 1000) >> expectedResultSet
 
 		where:
 			changelogTableName = "user_specified_changelog"
@@ -95,7 +141,7 @@ class DatabaseSchemaVersionManagerSpec extends Specification {
 		expectedResultSet = Mock(ResultSet)
 		timeProvider = Mock(DatabaseSchemaVersionManager.CurrentTimeProvider)
 		queryExecuter = Mock(QueryExecuter, {
-			executeQuery(_ as String) >> expectedResultSet
+			executeQuery(_ as String, _ as Integer) >> expectedResultSet
 		})
 
 		schemaVersionManager = new DatabaseSchemaVersionManager(queryExecuter, "changelog")
@@ -0,0 +1,136 @@
+package com.dbdeploy.database.changelog
+
+import spock.lang.Specification
+
+import java.sql.Connection
+import java.sql.SQLException
+
+class PooledConnectionSourceSpec extends Specification {
+
+	ConnectionSource delegate = Mock()
+	PooledConnectionSource pool = new PooledConnectionSource(delegate, 1)
+
+
+	def 'should hand out a released connection again'() {
+		given:
+			Connection connection = Mock()
+			connection.getAutoCommit() >> true
+
+		when:
+			final first = pool.connection
+			pool.release first
+			final second = pool.connection
+
+		then:
+			1 * delegate.getConnection() >> connection
+			second.is first
+	}
+
+
+	def 'should roll back and restore auto commit before pooling a connection'() {
+		given:
+			Connection connection = Mock()
+
+		when:
+			pool.release connection
+
+		then:
+			1 * connection.getAutoCommit() >> false
+
+		then:
+			1 * connection.rollback()
+
+		then:
+			1 * connection.setAutoCommit(true)
+			pool.idleCount == 1
+	}
+
+
+	def 'should give a connection back the schema and catalog it was opened with'() {
+		given:
+			Connection connection = Mock({
+				getAutoCommit() >> true
+				getCatalog() >>> ['deploy', 'other']
+				getSchema() >>> ['public', 'scratch']
+			})
+			delegate.getConnection() >> connection
+
+		when:
+			pool.release pool.connection
+
+		then:
+			1 * connection.setCatalog('deploy')
+			1 * connection.setSchema('public')
+			pool.idleCount == 1
+	}
+
+
+	def 'should not pool a connection whose session cannot be restored'() {
+		given:
+			Connection connection = Mock({
+				getAutoCommit() >> true
+				getSchema() >>> ['public', 'scratch']
+				setSchema(_) >> { throw new SQLException('no such schema') }
+			})
+			delegate.getConnection() >> connection
+
+		when:
+			pool.release pool.connection
+
+		then:
+			thrown(SQLException)
+			1 * delegate.release(connection)
+			pool.idleCount == 0
+	}
+
+
+	def 'should give connections beyond the idle limit back to the delegate'() {
+		given:
+			Connection first = Mock({ getAutoCommit() >> true })
+			Connection second = Mock({ getAutoCommit() >> true })
+
+		when:
+			pool.release first
+			pool.release second
+
+		then:
+			0 * delegate.release(first)
+			1 * delegate.release(second)
+	}
+
+
+	def 'should skip connections that were closed while idle'() {
+		given:
+			Connection stale = Mock({ getAutoCommit() >> true })
+			Connection fresh = Mock()
+			pool.release stale
+
+		when:
+			final connection = pool.connection
+
+		then:
+			1 * stale.isClosed() >> true
+			1 * delegate.getConnection() >> fresh
+			connection.is fresh
+	}
+
+
+	def 'should close idle connections and refuse new ones once closed'() {
+		given:
+			Connection connection = Mock({ getAutoCommit() >> true })
+			pool.release connection
+
+		when:
+			pool.close()
+
+		then:
+			1 * delegate.release(connection)
+			1 * delegate.close()
+
+		when:
+			pool.connection
+
+		then:
+			thrown(SQLException)
+	}
+}
@@ -0,0 +1,117 @@
+package com.dbdeploy.database.changelog
+
+import spock.lang.Specification
+
+import java.sql.Connection
+import java.sql.PreparedStatement
+import java.sql.Statement
+
+class QueryExecuterSpec extends Specification {
+
+	Connection connection = Mock()
+	QueryExecuter queryExecuter = new QueryExecuter(connection, 'sa')
+
+
+	def 'should reuse one statement for plain sql'() {
+		given:
+			Statement statement = Mock()
+
+		when:
+			queryExecuter.execute 'CREATE TABLE a (id INT)'
+			queryExecuter.execute 'CREATE TABLE b (id INT)'
+
+		then:
+			1 * connection.createStatement() >> statement
+			1 * statement.execute('CREATE TABLE a (id INT)')
+			1 * statement.execute('CREATE TABLE b (id INT)')
+	}
+
+
+	def 'should prepare parameterised sql once and rebind it on every call'() {
+		given:
+			PreparedStatement prepared = Mock()
+
+		when:
+			queryExecuter.execute sql, 1L
+			queryExecuter.execute sql, 2L
+
+		then:
+			1 * connection.prepareStatement(sql) >> prepared
+			2 * prepared.clearParameters()
+			1 * prepared.setObject(1, 1L)
+			1 * prepared.setObject(1, 2L)
+			2 * prepared.execute()
+
+		where:
+			sql = 'DELETE FROM changelog WHERE change_number = ?'
+	}
+
+
+	def 'should close evicted prepared statements'() {
+		given:
+			List<PreparedStatement> prepared = (0..16).collect { Mock(PreparedStatement) }
+			connection.prepareStatement(_) >>> prepared
+
+		when:
+			17.times { queryExecuter.execute "SELECT $it FROM dual WHERE ? = ?", 1, 1 }
+
+		then:
+			1 * prepared[0].close()
+			0 * prepared[1].close()
+	}
+
+
+	def 'should set the fetch size on the statement before running a query'() {
+		given:
+			Statement statement = Mock()
+			connection.createStatement() >> statement
+
+		when:
+			queryExecuter.executeQuery 'SELECT change_number FROM changelog', 1000
+
+		then:
+			1 * statement.setFetchSize(1000)
+
+		then:
+			1 * statement.executeQuery('SELECT change_number FROM changelog')
+	}
+
+
+	def 'should release every statement and the connection on close'() {
+		given:
+			Statement statement = Mock()
+			Statement queryStatement = Mock()
+			PreparedStatement prepared = Mock()
+			connection.createStatement() >>> [statement, queryStatement]
+			connection.prepareStatement(_) >> prepared
+
+		and:
+			queryExecuter.execute 'DROP TABLE a'
+			queryExecuter.executeQuery 'SELECT * FROM changelog'
+			queryExecuter.execute 'DELETE FROM changelog WHERE change_number = ?', 1L
+
+		when:
+			queryExecuter.close()
+
+		then:
+			1 * statement.close()
+			1 * queryStatement.close()
+			1 * prepared.close()
+			1 * connection.close()
+	}
+
+
+	def 'should clear the batch even when it fails'() {
+		given:
+			Statement statement = Mock()
+			connection.createStatement() >> statement
+
+		when:
+			queryExecuter.executeBatch(['INSERT INTO a VALUES (1)'])
+
+		then:
+			1 * statement.executeBatch() >> { throw new java.sql.BatchUpdateException() }
+			1 * statement.clearBatch()
+			thrown(java.sql.BatchUpdateException)
+	}
+}
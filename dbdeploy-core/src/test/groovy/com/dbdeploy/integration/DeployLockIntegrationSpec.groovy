@@ -0,0 +1,248 @@
+package com.dbdeploy.integration
+
+import com.dbdeploy.DbDeploy
+import com.dbdeploy.database.changelog.DeployLock
+import com.dbdeploy.exceptions.*
+import com.dbdeploy.listener.DeploymentListener
+import com.dbdeploy.scripts.ChangeScript
+import com.dbdeploy.tools.Database
+import spock.lang.Specification
+
+import java.util.function.LongSupplier
+
+class DeployLockIntegrationSpec extends Specification {
+
+	def 'should let one lock in at a time'() {
+		given:
+			final db = new Database('lock_exclusive_test')
+			db.createLockTable()
+
+			final first = new DeployLock(db.connectionSource, 'changelog_lock', 60_000)
+			final second = new DeployLock(db.connectionSource, 'changelog_lock', 60_000)
+
+		expect:
+			first.tryAcquire()
+			!second.tryAcquire()
+
+		when:
+			first.close()
+
+		then:
+			second.tryAcquire()
+
+		cleanup:
+			second.close()
+	}
+
+
+	def 'should take over a lease that was not renewed in time'() {
+		given:
+			final db = new Database('lock_expiry_test')
+			db.createLockTable()
+
+			long now = 1_000_000
+			final LongSupplier clock = { now }
+			final first = new DeployLock(db.connectionSource, 'changelog_lock', 'first', 60_000, clock)
+			final second = new DeployLock(db.connectionSource, 'changelog_lock', 'second', 60_000, clock)
+			first.tryAcquire()
+
+		when:
+			now += 30_000
+
+		then: 'renewed leases hold'
+			first.renew()
+			!second.tryAcquire()
+
+		when:
+			now += 61_000
+
+		then:
+			second.tryAcquire()
+			!first.renew()
+			first.lost
+
+		cleanup:
+			first.close()
+			second.close()
+	}
+
+
+	def 'should count a lease as lost once the lock table was out of reach for a whole lease'() {
+		given:
+			final db = new Database('lock_unreachable_test')
+			db.createLockTable()
+
+			long now = 1_000_000
+			final LongSupplier clock = { now }
+			final lock = new DeployLock(db.connectionSource, 'changelog_lock', 'first', 60_000, clock)
+			lock.tryAcquire()
+			db.dropLockTable()
+
+		when:
+			now += 30_000
+
+		then: 'the lease has not run out yet'
+			lock.renew()
+			!lock.lost
+
+		when:
+			now += 31_000
+
+		then:
+			!lock.renew()
+			lock.lost
+
+		cleanup:
+			lock.close()
+	}
+
+
+	def 'should fail rather than insert into a lock table it cannot use'() {
+		given:
+			final db = new Database('lock_missing_table_test')
+			final lock = new DeployLock(db.connectionSource, 'changelog_lock', 60_000)
+
+		when:
+			lock.tryAcquire()
+
+		then:
+			thrown SchemaVersionTrackingException
+
+		cleanup:
+			lock.close()
+	}
+
+
+	def 'should stop and roll back once another node takes over the lease mid-deploy'() {
+		given:
+			final db = new Database('lock_lost_test')
+			db.createSchemaVersionTable()
+			db.createLockTable()
+
+			final usurper = new DeployLock(db.connectionSource, 'changelog_lock', 60_000)
+			final dbDeploy = lockingDbDeploy(db)
+
+		and: 'the lease expires and is taken over while the first script runs'
+			dbDeploy.addListener(new DeploymentListener() {
+				@Override void scriptFinished(ChangeScript script, long nanos, Throwable failure) {
+					if (script.id == 1L) {
+						db.expireLock()
+						assert usurper.tryAcquire()
+					}
+				}
+			})
+
+		when:
+			dbDeploy.go()
+
+		then:
+			thrown DeployLockLostException
+			db.changelogEntries.empty
+
+		cleanup:
+			usurper.close()
+	}
+
+
+	def 'should deploy once the holder of the lock lets go'() {
+		given:
+			final db = new Database('lock_wait_test')
+			db.createSchemaVersionTable()
+			db.createLockTable()
+
+			final holder = new DeployLock(db.connectionSource, 'changelog_lock', 60_000)
+			holder.tryAcquire()
+
+			final dbDeploy = lockingDbDeploy(db)
+			final deploy = Thread.start { dbDeploy.go() }
+
+		when:
+			sleep 300
+
+		then:
+			deploy.alive
+			db.changelogEntries.empty
+
+		when:
+			holder.close()
+			deploy.join 10_000
+
+		then:
+			!deploy.alive
+			db.changelogEntries == [1L, 2L]
+	}
+
+
+	def 'should stop waiting as soon as the database is up to date'() {
+		given:
+			final db = new Database('lock_up_to_date_test')
+			db.createSchemaVersionTable()
+			db.createLockTable()
+			lockingDbDeploy(db).go()
+
+		and: 'another node holds the lock'
+			final holder = new DeployLock(db.connectionSource, 'changelog_lock', 60_000)
+			holder.tryAcquire()
+
+			final dbDeploy = lockingDbDeploy(db)
+			dbDeploy.lockTimeout = 0
+
+		when:
+			dbDeploy.go()
+
+		then:
+			notThrown(SchemaVersionTrackingException)
+			db.changelogEntries == [1L, 2L]
+
+		cleanup:
+			holder.close()
+	}
+
+
+	def 'should give up waiting after the lock timeout'() {
+		given:
+			final db = new Database('lock_timeout_test')
+			db.createSchemaVersionTable()
+			db.createLockTable()
+
+			final holder = new DeployLock(db.connectionSource, 'changelog_lock', 60_000)
+			holder.tryAcquire()
+
+			final dbDeploy = lockingDbDeploy(db)
+			dbDeploy.lockTimeout = 0
+
+		when:
+			dbDeploy.go()
+
+		then:
+			thrown(SchemaVersionTrackingException)
+			db.changelogEntries.empty
+
+		cleanup:
+			holder.close()
+	}
+
+
+	private DbDeploy lockingDbDeploy(Database db) {
+		final dbDeploy = new DbDeploy(findScriptDirectory('src/it/db/deltas'))
+		db.applyDatabaseSettingsTo(dbDeploy)
+		dbDeploy.deployLock = true
+		dbDeploy.lockPollMillis = 50
+		dbDeploy
+	}
+
+
+	File findScriptDirectory(String directoryName) {
+		File directoryWhenRunningUnderMaven = new File(directoryName)
+
+		if (directoryWhenRunningUnderMaven.isDirectory())
+			return directoryWhenRunningUnderMaven
+
+		File directoryWhenRunningUnderIde = new File('dbdeploy-core', directoryName)
+
+		if (directoryWhenRunningUnderIde.isDirectory())
+			return directoryWhenRunningUnderIde
+
+		assert false, "Could not find script directory: $directoryName"
+	}
+}
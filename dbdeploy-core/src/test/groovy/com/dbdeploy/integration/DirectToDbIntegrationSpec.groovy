@@ -1,6 +1,7 @@
 package com.dbdeploy.integration
 
 import com.dbdeploy.DbDeploy
+import com.dbdeploy.database.TransactionGrouping
 import com.dbdeploy.tools.Database
 import spock.lang.Specification
 
@@ -92,6 +93,26 @@ class DirectToDbIntegrationSpec extends Specification {
 	}
 
 
+	def 'should not record any script when grouping the whole deploy into one transaction and a script fails'() {
+		given:
+			final db = new Database('todb_deploy_transaction_test')
+			db.createSchemaVersionTable()
+
+		and:
+			final dbDeploy = db.applyDatabaseSettingsTo new DbDeploy(findScriptDirectory('src/it/db/invalid_deltas'))
+			dbDeploy.transactionGrouping = TransactionGrouping.deploy
+
+		when:
+			dbDeploy.go()
+
+		then:
+			thrown Exception
+
+		and:
+			db.changelogEntries.empty
+	}
+
+
 	def 'should not throw when applying same scripts twice'() {
 		given:
 			final db = new Database('foo')
@@ -0,0 +1,76 @@
+package com.dbdeploy.listener
+
+import com.dbdeploy.scripts.ChangeScript
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.sql.SQLException
+
+class DeployMetricsSpec extends Specification {
+
+	File directory = Files.createTempDirectory("metrics").toFile()
+	File file = new File(directory, "dbdeploy.prom")
+	DeployMetrics metrics = new DeployMetrics(file)
+
+	ChangeScript script = new ChangeScript(1, "001_create.sql")
+
+
+	def cleanup() {
+		directory.deleteDir()
+	}
+
+
+	def 'should count scripts, statements and rows'() {
+		when:
+			metrics.statementFinished script, 1, 'INSERT 1', 1_000_000, 2, null
+			metrics.statementFinished script, 2, 'INSERT 2', 1_000_000, -1, null
+			metrics.statementFinished script, 3, 'FAIL', 1_000_000, -1, new SQLException()
+			metrics.scriptFinished script, 5_000_000, null
+			metrics.deployFinished 'changelog', 10_000_000, null
+
+		then:
+			final text = file.text
+			text.contains 'dbdeploy_scripts_applied_total 1\n'
+			text.contains 'dbdeploy_statements_executed_total 2\n'
+			text.contains 'dbdeploy_statement_failures_total 1\n'
+			text.contains 'dbdeploy_rows_affected_total 2\n'
+			text.contains 'dbdeploy_deploys_total 1\n'
+			text.contains '# TYPE dbdeploy_statement_duration_seconds histogram\n'
+	}
+
+
+	def 'should write cumulative histogram buckets'() {
+		given:
+			final histogram = new Histogram('test_seconds', 'Test.', [0.01, 1] as double[])
+			final writer = new StringWriter()
+
+		when:
+			histogram.observe 5_000_000
+			histogram.observe 500_000_000
+			histogram.observe 2_000_000_000
+			histogram.writeTo writer
+
+		then:
+			writer.toString().readLines().drop(2) == [
+					'test_seconds_bucket{le="0.01"} 1',
+					'test_seconds_bucket{le="1.0"} 2',
+					'test_seconds_bucket{le="+Inf"} 3',
+					'test_seconds_sum 2.505',
+					'test_seconds_count 3',
+			]
+	}
+
+
+	def 'should aggregate the trees of a composite run into one file'() {
+		when:
+			['first', 'second'].each {
+				metrics.scriptFinished script, 1, null
+				metrics.deployFinished it, 1, null
+			}
+
+		then:
+			file.text.contains 'dbdeploy_scripts_applied_total 2\n'
+			file.text.contains 'dbdeploy_deploys_total 2\n'
+			directory.list() as List == ['dbdeploy.prom']
+	}
+}
@@ -0,0 +1,97 @@
+package com.dbdeploy.listener
+
+import com.dbdeploy.AppliedChangeSet
+import com.dbdeploy.scripts.ChangeScript
+import groovy.json.JsonSlurper
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.sql.SQLException
+
+class JsonTimingReportSpec extends Specification {
+
+	File directory = Files.createTempDirectory("report").toFile()
+	File file = new File(directory, "timings.json")
+	JsonTimingReport report = new JsonTimingReport(file)
+
+	ChangeScript script = new ChangeScript(1, "001_create.sql")
+
+
+	def cleanup() {
+		directory.deleteDir()
+	}
+
+
+	def 'should write the timings of a deploy when it finishes'() {
+		when:
+			report.deployStarted 'changelog'
+			report.scanFinished new File('scripts'), 1, 1000
+			report.planComputed([script], AppliedChangeSet.empty(), [script])
+			report.scriptStarted script
+			report.statementFinished script, 1, 'INSERT 1', 200, 1, null
+			report.statementFinished script, 2, 'INSERT "2"', 300, -1, new SQLException('bad "value"')
+			report.scriptFinished script, 600, null
+			report.committed 1, 50
+
+		then:
+			!file.exists()
+
+		when:
+			report.deployFinished 'changelog', 2000, null
+			final json = new JsonSlurper().parse(file)
+
+		then:
+			json.deploys.size() == 1
+
+			with(json.deploys[0]) {
+				name == 'changelog'
+				durationNanos == 2000
+				failure == null
+				scan.scripts == 1
+				plan == [available: 1, applied: 0, toApply: 1]
+				scripts[0].id == 1
+				scripts[0].name == '001_create.sql'
+				scripts[0].durationNanos == 600
+				scripts[0].statements*.rowsAffected == [1, -1]
+				scripts[0].statements[1].failure == 'bad "value"'
+				commits == [[scripts: 1, durationNanos: 50]]
+			}
+
+		and:
+			directory.list() as List == ['timings.json']
+	}
+
+
+	def 'should include every deploy of a composite run'() {
+		when:
+			['first', 'second'].each {
+				report.deployStarted it
+				report.deployFinished it, 10, it == 'second' ? new IllegalStateException('boom') : null
+			}
+
+		then:
+			final json = new JsonSlurper().parse(file)
+			json.deploys*.name == ['first', 'second']
+			json.deploys*.failure == [null, 'boom']
+	}
+
+
+	def 'should replace the report of an earlier run and keep the file complete after every deploy'() {
+		given:
+			file.text = '{"deploys":[{"name":"from an earlier run, with a much longer section than the next"}]}'
+
+		when:
+			report.deployStarted 'first'
+			report.deployFinished 'first', 10, null
+
+		then:
+			new JsonSlurper().parse(file).deploys*.name == ['first']
+
+		when:
+			report.deployStarted 'second'
+			report.deployFinished 'second', 10, null
+
+		then:
+			new JsonSlurper().parse(file).deploys*.name == ['first', 'second']
+	}
+}
@@ -0,0 +1,64 @@
+package com.dbdeploy.log
+
+import spock.lang.Specification
+
+class LogSpec extends Specification {
+
+	ByteArrayOutputStream output = new ByteArrayOutputStream()
+
+
+	def setup() {
+		Log.flush()
+		Log.output = new PrintStream(output, true)
+	}
+
+
+	def cleanup() {
+		Log.flush()
+		Log.output = System.err
+		Log.level = LogLevel.normal
+	}
+
+
+	def 'should write lines up to the current level once flushed'() {
+		given:
+			Log.level = level
+
+		when:
+			Log.warn 'warn'
+			Log.info 'info'
+			Log.verbose 'verbose'
+			Log.flush()
+
+		then:
+			lines() == expected
+
+		where:
+			level             | expected
+			LogLevel.quiet    | ['warn']
+			LogLevel.normal   | ['warn', 'info']
+			LogLevel.verbose  | ['warn', 'info', 'verbose']
+	}
+
+
+	def 'should keep lines from many threads whole and in per-thread order'() {
+		when:
+			(1..4).collect { thread ->
+				Thread.start {
+					(1..1000).each { Log.info "${thread}:${it}" }
+				}
+			}*.join()
+			Log.flush()
+
+		then:
+			lines().size() == 4000
+			(1..4).every { thread ->
+				lines().findAll { it.startsWith("${thread}:") } == (1..1000).collect { "${thread}:${it}" }
+			}
+	}
+
+
+	private List<String> lines() {
+		output.toString().readLines()
+	}
+}
@@ -0,0 +1,123 @@
+package com.dbdeploy.scripts
+
+import com.dbdeploy.exceptions.DbDeployException
+import spock.lang.Specification
+
+class ChangeScriptContentCacheSpec extends Specification {
+
+	def 'should read each section from disk once and then serve it from the cache'() {
+		given:
+			final cache = new ChangeScriptContentCache(1024 * 1024)
+			final script = new ChangeScript(1, createTemporaryFileWithContent('CREATE\n--//@UNDO\nDROP\n'), 'UTF-8', cache)
+
+		when:
+			3.times {
+				assert script.content == 'CREATE\n'
+				assert script.undoContent == 'DROP\n'
+			}
+
+		then:
+			cache.misses == 2
+			cache.hits == 4
+			cache.size() == 2
+	}
+
+
+	def 'should treat an edited file as a miss'() {
+		given:
+			final cache = new ChangeScriptContentCache(1024 * 1024)
+			final file = createTemporaryFileWithContent('CREATE\n')
+			final script = new ChangeScript(1, file, 'UTF-8', cache)
+			script.content
+
+		when:
+			file.text = 'CREATE TABLE\n'
+
+		then:
+			script.content == 'CREATE TABLE\n'
+			cache.misses == 2
+	}
+
+
+	def 'should evict the least recently used content to stay within its budget'() {
+		given:
+			final content = 'x' * 100 + '\n'
+			final cache = new ChangeScriptContentCache(2 * (2 * content.length() + 64))
+			final scripts = (1..3).collect {
+				new ChangeScript(it, createTemporaryFileWithContent(content), 'UTF-8', cache)
+			}
+
+		when:
+			scripts[0].content
+			scripts[1].content
+			scripts[0].content
+			scripts[2].content
+
+		then:
+			cache.evictions == 1
+			cache.size() == 2
+			cache.currentBytes <= cache.maxBytes
+
+		when: 'the evicted script is read again'
+			scripts[1].content
+
+		then:
+			cache.misses == 4
+	}
+
+
+	def 'should not cache content larger than the whole budget'() {
+		given:
+			final cache = new ChangeScriptContentCache(16)
+			final script = new ChangeScript(1, createTemporaryFileWithContent('SELECT 1\n'), 'UTF-8', cache)
+
+		when:
+			script.content
+			script.content
+
+		then:
+			cache.size() == 0
+			cache.misses == 2
+	}
+
+
+	def 'should keep the content of a file decoded with different encodings apart'() {
+		given:
+			final cache = new ChangeScriptContentCache(1024 * 1024)
+			final file = createTemporaryFileWithContent('INSERT INTO t VALUES (\'\u00e9\');\n')
+			final utf8 = new ChangeScript(1, file, 'UTF-8', cache)
+			final latin1 = new ChangeScript(1, file, 'ISO-8859-1', cache)
+
+		expect:
+			utf8.content == 'INSERT INTO t VALUES (\'\u00e9\');\n'
+			latin1.content == 'INSERT INTO t VALUES (\'\u00c3\u00a9\');\n'
+			cache.misses == 2
+			cache.size() == 2
+	}
+
+
+	def 'should report an unknown encoding as a failure to read the script'() {
+		given:
+			final cache = new ChangeScriptContentCache(1024 * 1024)
+			final script = new ChangeScript(1, createTemporaryFileWithContent('SELECT 1\n'), 'NO-SUCH-ENCODING', cache)
+
+		when:
+			script.content
+
+		then:
+			final e = thrown DbDeployException
+			e.cause instanceof UnsupportedEncodingException
+			cache.misses == 0
+	}
+
+
+	/* HELPERS */
+
+	File createTemporaryFileWithContent(String content) {
+		final file = File.createTempFile('changeScriptCacheTest', '.sql')
+		file.deleteOnExit()
+		file.setText(content, 'UTF-8')
+
+		return file
+	}
+}
@@ -1,5 +1,6 @@
 package com.dbdeploy.scripts
 
+import com.dbdeploy.exceptions.DbDeployException
 import spock.lang.Specification
 
 class ChangeScriptSpec extends Specification {
@@ -87,6 +88,88 @@ class ChangeScriptSpec extends Specification {
 	}
 
 
+	def 'should serve both sections repeatedly from a single index'() {
+		given:
+			final file = createTemporaryFileWithContent(content)
+			final changeScript = new ChangeScript(5, file, 'UTF-8')
+
+		expect:
+			changeScript.content == 'Hello\nThere!\n'
+			changeScript.undoContent == 'After\n'
+			changeScript.content == 'Hello\nThere!\n'
+			changeScript.undoContent == 'After\n'
+
+		where:
+			content = 'Hello\r\n' +
+					'There!\r\n' +
+					'  --//@UNDO\r\n' +
+					'After'
+	}
+
+
+	def 'should read sections of files large enough to be memory mapped'() {
+		given:
+			final line = 'INSERT INTO foo VALUES (1);\n'
+			final doSection = line * (2 * 1024 * 1024 / line.length())
+			final file = createTemporaryFileWithContent(doSection + '--//@UNDO\nDELETE FROM foo;\n')
+			final changeScript = new ChangeScript(5, file, 'UTF-8')
+
+		expect:
+			changeScript.content == doSection
+			changeScript.undoContent == 'DELETE FROM foo;\n'
+	}
+
+
+	def 'should stream contents of file up to the undo marker'() {
+		given:
+			final file = createTemporaryFileWithContent(content)
+			final changeScript = new ChangeScript(5, file, 'UTF-8')
+
+		expect:
+			changeScript.openContentReader().text == 'Hello\nThere!\n'
+
+		where:
+			content = 'Hello\r\n' +
+					'There!\n' +
+					'  --//@UNDO \n' +
+					'This is after the undo marker!\n'
+	}
+
+
+	def 'should count the bytes a streamed script reads from disk'() {
+		given:
+			final file = createTemporaryFileWithContent('INSERT INTO foo VALUES (1);\n')
+			final changeScript = new ChangeScript(5, file, 'UTF-8')
+			final before = ChangeScript.bytesRead
+
+		when:
+			changeScript.openContentReader().text
+
+		then:
+			ChangeScript.bytesRead - before == file.length()
+	}
+
+
+	def 'should refuse to read a file of 2 GiB or more whole'() {
+		given:
+			final file = File.createTempFile('changeScriptTest', '.sql')
+			file.deleteOnExit()
+			new RandomAccessFile(file, 'rw').withCloseable { it.length = 1L << 31 }
+			final changeScript = new ChangeScript(5, file, 'UTF-8')
+
+		when:
+			changeScript.content
+
+		then:
+			final e = thrown DbDeployException
+			e.cause instanceof IOException
+			e.cause.message.contains 'too large'
+
+		cleanup:
+			file.delete()
+	}
+
+
 	def 'change-scripts naturally order by id'() {
 		when:
 			final one = new ChangeScript(1)
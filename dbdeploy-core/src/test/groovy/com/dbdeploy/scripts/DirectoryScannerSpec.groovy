@@ -0,0 +1,156 @@
+package com.dbdeploy.scripts
+
+import com.dbdeploy.exceptions.UnrecognisedFilenameException
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class DirectoryScannerSpec extends Specification {
+
+	File root = Files.createTempDirectory("scanner").toFile()
+	File scripts = new File(root, "scripts")
+	File manifests = new File(root, "manifests")
+
+	DirectoryScanner scanner = new DirectoryScanner('UTF-8')
+
+
+	def setup() {
+		scripts.mkdirs()
+		new File(scripts, '001_create.sql').text = 'CREATE'
+		new File(scripts, '002_insert.sql').text = 'INSERT'
+		new File(scripts, 'readme.txt').text = 'not a script'
+		new File(scripts, '003_directory').mkdirs()
+
+		scanner.manifestDirectory = manifests
+	}
+
+
+	def cleanup() {
+		root.deleteDir()
+	}
+
+
+	def 'should find the same scripts with and without a manifest'() {
+		given:
+			final plain = new DirectoryScanner('UTF-8')
+
+		expect:
+			ids(scanner.getChangeScriptsForDirectory(scripts)) == [1L, 2L]
+			ids(plain.getChangeScriptsForDirectory(scripts)) == [1L, 2L]
+	}
+
+
+	def 'should take the scripts of a settled, unchanged directory from the manifest'() {
+		given:
+			settle()
+			scanner.getChangeScriptsForDirectory(scripts)
+
+		when: 'a file disappears behind the back of the directory time'
+			final modified = scripts.lastModified()
+			new File(scripts, '002_insert.sql').delete()
+			scripts.lastModified = modified
+
+		then:
+			ids(scanner.getChangeScriptsForDirectory(scripts)) == [1L, 2L]
+	}
+
+
+	def 'should list a changed directory again'() {
+		given:
+			settle()
+			scanner.getChangeScriptsForDirectory(scripts)
+
+		when:
+			new File(scripts, '004_update.sql').text = 'UPDATE'
+			scripts.lastModified = scripts.lastModified() + 10_000
+
+		then:
+			ids(scanner.getChangeScriptsForDirectory(scripts)) == [1L, 2L, 4L]
+	}
+
+
+	def 'should not trust a directory changed just before its scan'() {
+		given:
+			scanner.getChangeScriptsForDirectory(scripts)
+
+		when:
+			final modified = scripts.lastModified()
+			new File(scripts, '004_update.sql').text = 'UPDATE'
+			scripts.lastModified = modified
+
+		then:
+			ids(scanner.getChangeScriptsForDirectory(scripts)) == [1L, 2L, 4L]
+	}
+
+
+	def 'should record name and id'() {
+		when:
+			scanner.getChangeScriptsForDirectory(scripts)
+
+		then:
+			final manifest = ScanManifest.read(manifests.listFiles().find { it.name.endsWith('.manifest') })
+			manifest.directoryModified == scripts.lastModified()
+
+			final entry = manifest.get('002_insert.sql')
+			entry.id == 2L
+	}
+
+
+	def 'should ignore a manifest it cannot read'() {
+		given:
+			settle()
+			scanner.getChangeScriptsForDirectory(scripts)
+			manifests.listFiles().each { it.text = 'something else' }
+
+		expect:
+			ids(scanner.getChangeScriptsForDirectory(scripts)) == [1L, 2L]
+	}
+
+
+	def 'should take scripts from every directory of a tree in order of id'() {
+		given:
+			new File(scripts, 'team-a/nested').mkdirs()
+			new File(scripts, 'team-b').mkdirs()
+			new File(scripts, '.git/objects/12').mkdirs()
+			new File(scripts, 'team-a/nested/005_deep.sql').text = 'DEEP'
+			new File(scripts, 'team-a/004_a.sql').text = 'A'
+			new File(scripts, 'team-b/010_b.sql').text = 'B'
+			new File(scripts, 'team-b/notes.txt').text = 'not a script'
+			new File(scripts, '.git/objects/12/3456789abc').text = 'not a script either'
+
+		and:
+			final recursive = new DirectoryScanner('UTF-8')
+			recursive.recursive = true
+			recursive.parallelism = 2
+
+		when:
+			final found = recursive.getChangeScriptsForDirectory(scripts)
+
+		then:
+			found*.id == [1L, 2L, 4L, 5L, 10L]
+			found*.file*.name == ['001_create.sql', '002_insert.sql', '004_a.sql', '005_deep.sql', '010_b.sql']
+	}
+
+
+	def 'should refuse a script number too large for an id'() {
+		given:
+			new File(scripts, '99999999999999999999_huge.sql').text = 'HUGE'
+
+		when:
+			new DirectoryScanner('UTF-8').getChangeScriptsForDirectory(scripts)
+
+		then:
+			final e = thrown UnrecognisedFilenameException
+			e.message.contains '99999999999999999999_huge.sql'
+	}
+
+
+	private void settle() {
+		scripts.lastModified = System.currentTimeMillis() - 60_000
+	}
+
+
+	private static List<Long> ids(List<ChangeScript> changeScripts) {
+		changeScripts*.id.sort()
+	}
+}
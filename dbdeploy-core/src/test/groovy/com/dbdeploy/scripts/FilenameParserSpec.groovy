@@ -40,4 +40,30 @@ class FilenameParserSpec extends Specification {
 		where:
 			fileName = "blah blah blah"
 	}
+
+
+	@Unroll
+	def 'parses ids without throwing: "#fileName" is #expected'() {
+		expect:
+			new FilenameParser().parseId(fileName) == expected
+
+		where:
+			fileName                          || expected
+			'0001_a_filename.txt'             || 1L
+			'9223372036854775807_max.sql'     || Long.MAX_VALUE
+			'9223372036854775808_over.sql'    || FilenameParser.OVERFLOW
+			'99999999999999999999999_big.sql' || FilenameParser.OVERFLOW
+			'README.md'                       || FilenameParser.NOT_A_SCRIPT
+			'_1.sql'                          || FilenameParser.NOT_A_SCRIPT
+			''                                || FilenameParser.NOT_A_SCRIPT
+	}
+
+
+	def 'throws when the number in a file name is too large'() {
+		when:
+			new FilenameParser().extractIdFromFilename '9223372036854775808_over.sql'
+
+		then:
+			thrown UnrecognisedFilenameException
+	}
 }
@@ -43,7 +43,8 @@ public class Database {
 				        "  change_number INTEGER NOT NULL, " +
 				        "  complete_dt TIMESTAMP NOT NULL, " +
 				        "  applied_by VARCHAR(100) NOT NULL, " +
-				        "  description VARCHAR(500) NOT NULL " +
+				        "  description VARCHAR(500) NOT NULL, " +
+				        "  checksum VARCHAR(64) " +
 				        ")");
 
 		execute("ALTER TABLE " + changeLogTableName +
@@ -52,6 +53,37 @@ public class Database {
 		return changeLogTableName;
 	}
 
+	public String createLockTable() throws SQLException {
+		String lockTableName = changeLogTableName + "_lock";
+
+		execute("CREATE TABLE " + lockTableName +
+				        " ( " +
+				        "  lock_id INTEGER NOT NULL, " +
+				        "  owner VARCHAR(200) NOT NULL, " +
+				        "  expires_at BIGINT NOT NULL " +
+				        ")");
+
+		execute("ALTER TABLE " + lockTableName +
+				        " ADD CONSTRAINT Pk" + lockTableName + " PRIMARY KEY (lock_id)");
+
+		return lockTableName;
+	}
+
+	/**
+	 * Lets the lease in the lock table run out, as if its owner had stopped renewing it.
+	 */
+	public void expireLock() throws SQLException {
+		execute("UPDATE " + changeLogTableName + "_lock SET expires_at = 0");
+	}
+
+	public void dropLockTable() throws SQLException {
+		execute("DROP TABLE " + changeLogTableName + "_lock");
+	}
+
+	public ConnectionSource getConnectionSource() {
+		return new DriverManagerConnectionSource(connectionString, DATABASE_USERNAME, DATABASE_PASSWORD);
+	}
+
 	private void execute(String sql) throws SQLException {
 		try (Statement statement = connection.createStatement()) {
 			statement.execute(sql);
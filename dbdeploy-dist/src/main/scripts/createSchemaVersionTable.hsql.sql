@@ -3,8 +3,18 @@ CREATE TABLE changelog (
   change_number BIGINT NOT NULL,
   complete_dt TIMESTAMP NOT NULL,
   applied_by VARCHAR(100) NOT NULL,
-  description VARCHAR(500) NOT NULL
+  description VARCHAR(500) NOT NULL,
+  checksum VARCHAR(64)
 );
 
 ALTER TABLE changelog ADD CONSTRAINT Pkchangelog PRIMARY KEY (change_number)
+;
+
+CREATE TABLE changelog_lock (
+  lock_id INTEGER NOT NULL,
+  owner VARCHAR(200) NOT NULL,
+  expires_at BIGINT NOT NULL
+);
+
+ALTER TABLE changelog_lock ADD CONSTRAINT Pkchangelog_lock PRIMARY KEY (lock_id)
 ;
\ No newline at end of file
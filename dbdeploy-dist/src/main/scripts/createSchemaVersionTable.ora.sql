@@ -2,8 +2,18 @@ CREATE TABLE changelog (
   change_number NUMBER(22,0) NOT NULL,
   complete_dt TIMESTAMP NOT NULL,
   applied_by VARCHAR2(100) NOT NULL,
-  description VARCHAR2(500) NOT NULL
+  description VARCHAR2(500) NOT NULL,
+  checksum VARCHAR2(64)
 );
 
 ALTER TABLE changelog ADD CONSTRAINT Pkchangelog PRIMARY KEY (change_number)
+;
+
+CREATE TABLE changelog_lock (
+  lock_id NUMBER(10,0) NOT NULL,
+  owner VARCHAR2(200) NOT NULL,
+  expires_at NUMBER(22,0) NOT NULL
+);
+
+ALTER TABLE changelog_lock ADD CONSTRAINT Pkchangelog_lock PRIMARY KEY (lock_id)
 ;
\ No newline at end of file
@@ -2,9 +2,20 @@ CREATE TABLE changelog (
   change_number NUMERIC(22,0) NOT NULL,
   complete_dt DATETIME NOT NULL,
   applied_by VARCHAR(100) NOT NULL,
-  description VARCHAR(500) NOT NULL
+  description VARCHAR(500) NOT NULL,
+  checksum VARCHAR(64)
 )
 GO
 
 ALTER TABLE changelog ADD CONSTRAINT Pkchangelog PRIMARY KEY (change_number)
-GO
\ No newline at end of file
+GO
+
+CREATE TABLE changelog_lock (
+  lock_id INTEGER NOT NULL,
+  owner VARCHAR(200) NOT NULL,
+  expires_at NUMERIC(22,0) NOT NULL
+)
+GO
+
+ALTER TABLE changelog_lock ADD CONSTRAINT Pkchangelog_lock PRIMARY KEY (lock_id)
+GO
@@ -0,0 +1,12 @@
+package com.dbdeploy.jfr;
+
+import jdk.jfr.*;
+
+@Name("com.dbdeploy.ChangeLogRead")
+@Label("Change Log Read")
+@Category("dbdeploy")
+@Description("Reading the applied change numbers from the change log table")
+class ChangeLogReadEvent extends Event {
+	@Label("Applied Changes")
+	long appliedChanges;
+}
@@ -0,0 +1,11 @@
+package com.dbdeploy.jfr;
+
+import jdk.jfr.*;
+
+@Name("com.dbdeploy.Commit")
+@Label("Commit")
+@Category("dbdeploy")
+class CommitEvent extends Event {
+	@Label("Scripts")
+	int scripts;
+}
@@ -0,0 +1,15 @@
+package com.dbdeploy.jfr;
+
+import jdk.jfr.*;
+
+@Name("com.dbdeploy.Deploy")
+@Label("Deploy")
+@Category("dbdeploy")
+@Description("A complete deploy of one script directory")
+class DeployEvent extends Event {
+	@Label("Change Log Table")
+	String changeLogTable;
+
+	@Label("Succeeded")
+	boolean succeeded;
+}
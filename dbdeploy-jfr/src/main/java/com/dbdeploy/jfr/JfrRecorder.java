@@ -0,0 +1,173 @@
+package com.dbdeploy.jfr;
+
+import com.dbdeploy.listener.DeploymentListener;
+import com.dbdeploy.scripts.ChangeScript;
+import jdk.jfr.*;
+
+import java.io.*;
+import java.sql.SQLException;
+import java.text.ParseException;
+import java.util.*;
+
+/**
+ * Turns deployment events into flight recorder events in the {@code dbdeploy} category, so a
+ * stalled deploy shows whether it is waiting on the database, the disk or a template.
+ * Created with a file it also runs a recording with the default JDK settings plus these
+ * events, written to the file on {@link #close()} or when the JVM exits.
+ */
+public class JfrRecorder implements DeploymentListener, Closeable {
+	private final Recording recording;
+	private final ThreadLocal<OpenEvents> open = ThreadLocal.withInitial(OpenEvents::new);
+
+
+	/**
+	 * Emits events for a recording started some other way, e.g. with {@code jcmd JFR.start}.
+	 */
+	public JfrRecorder() {
+		this.recording = null;
+	}
+
+
+	public JfrRecorder(File destination) throws IOException {
+		try {
+			recording = new Recording(Configuration.getConfiguration("default"));
+		}
+		catch (ParseException e) {
+			throw new IOException("Could not read the default flight recorder settings", e);
+		}
+
+		for (Class<? extends Event> event : Arrays.asList(DeployEvent.class, ScanEvent.class,
+				ChangeLogReadEvent.class, ScriptEvent.class, StatementEvent.class, CommitEvent.class,
+				TemplateRenderEvent.class))
+			recording.enable(event).withoutThreshold();
+
+		recording.setName("dbdeploy");
+		recording.setDestination(destination.toPath());
+		recording.setDumpOnExit(true);
+		recording.start();
+	}
+
+
+	@Override public void deployStarted(String name) {
+		DeployEvent event = new DeployEvent();
+		event.changeLogTable = name;
+		event.begin();
+		open.get().deploy = event;
+	}
+
+	@Override public void deployFinished(String name, long nanos, Throwable failure) {
+		DeployEvent event = open.get().deploy;
+
+		if (event != null) {
+			event.succeeded = failure == null;
+			event.commit();
+		}
+
+		open.remove();
+	}
+
+	@Override public void scanStarted(File directory) {
+		ScanEvent event = new ScanEvent();
+		event.directory = directory.getPath();
+		event.begin();
+		open.get().scan = event;
+	}
+
+	@Override public void scanFinished(File directory, int scripts, long nanos) {
+		ScanEvent event = open.get().scan;
+		event.scripts = scripts;
+		event.commit();
+	}
+
+	@Override public void changeLogReadStarted() {
+		ChangeLogReadEvent event = new ChangeLogReadEvent();
+		event.begin();
+		open.get().changeLogRead = event;
+	}
+
+	@Override public void changeLogReadFinished(long appliedChanges, long nanos) {
+		ChangeLogReadEvent event = open.get().changeLogRead;
+		event.appliedChanges = appliedChanges;
+		event.commit();
+	}
+
+	@Override public void scriptStarted(ChangeScript script) {
+		ScriptEvent event = new ScriptEvent();
+		event.scriptId = script.getId();
+		event.script = script.getDescription();
+		event.begin();
+		open.get().script = event;
+	}
+
+	@Override public void scriptFinished(ChangeScript script, long nanos, Throwable failure) {
+		ScriptEvent event = open.get().script;
+		event.succeeded = failure == null;
+		event.commit();
+	}
+
+	@Override public void statementStarted(ChangeScript script, int statement, String sql) {
+		StatementEvent event = new StatementEvent();
+		event.scriptId = script.getId();
+		event.statementIndex = statement;
+		event.begin();
+		open.get().statements.put(statement, event);
+	}
+
+	@Override public void statementFinished(ChangeScript script, int statement, String sql, long nanos,
+	                                        int rowsAffected, SQLException failure) {
+		StatementEvent event = open.get().statements.remove(statement);
+
+		if (event == null)
+			return;
+
+		event.rowsAffected = rowsAffected;
+		event.succeeded = failure == null;
+		event.commit();
+	}
+
+	@Override public void commitStarted(int scripts) {
+		CommitEvent event = new CommitEvent();
+		event.scripts = scripts;
+		event.begin();
+		open.get().commit = event;
+	}
+
+	@Override public void committed(int scripts, long nanos) {
+		open.get().commit.commit();
+	}
+
+	@Override public void templateRenderStarted(String template, int scripts) {
+		TemplateRenderEvent event = new TemplateRenderEvent();
+		event.template = template;
+		event.scripts = scripts;
+		event.begin();
+		open.get().templateRender = event;
+	}
+
+	@Override public void templateRenderFinished(String template, int scripts, long nanos) {
+		open.get().templateRender.commit();
+	}
+
+
+	/**
+	 * Stops the recording, which writes it to its file.
+	 */
+	@Override public void close() {
+		if (recording == null)
+			return;
+
+		recording.stop();
+		recording.close();
+	}
+
+
+	private static final class OpenEvents {
+		private DeployEvent deploy;
+		private ScanEvent scan;
+		private ChangeLogReadEvent changeLogRead;
+		private ScriptEvent script;
+		private final Map<Integer, StatementEvent> statements = new HashMap<>();
+		private CommitEvent commit;
+		private TemplateRenderEvent templateRender;
+	}
+}
@@ -0,0 +1,15 @@
+package com.dbdeploy.jfr;
+
+import jdk.jfr.*;
+
+@Name("com.dbdeploy.Scan")
+@Label("Directory Scan")
+@Category("dbdeploy")
+@Description("Listing the script directory and parsing its file names")
+class ScanEvent extends Event {
+	@Label("Directory")
+	String directory;
+
+	@Label("Scripts")
+	int scripts;
+}
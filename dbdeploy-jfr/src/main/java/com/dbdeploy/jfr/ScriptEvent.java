@@ -0,0 +1,18 @@
+package com.dbdeploy.jfr;
+
+import jdk.jfr.*;
+
+@Name("com.dbdeploy.Script")
+@Label("Script Apply")
+@Category("dbdeploy")
+@Description("Applying one change script and recording it in the change log")
+class ScriptEvent extends Event {
+	@Label("Script Id")
+	long scriptId;
+
+	@Label("Script")
+	String script;
+
+	@Label("Succeeded")
+	boolean succeeded;
+}
@@ -0,0 +1,22 @@
+package com.dbdeploy.jfr;
+
+import jdk.jfr.*;
+
+@Name("com.dbdeploy.Statement")
+@Label("Statement Execute")
+@Category("dbdeploy")
+@Description("Executing one statement of a change script")
+class StatementEvent extends Event {
+	@Label("Script Id")
+	long scriptId;
+
+	@Label("Statement Index")
+	@Description("1-based position of the statement in its script")
+	int statementIndex;
+
+	@Label("Rows Affected")
+	int rowsAffected;
+
+	@Label("Succeeded")
+	boolean succeeded;
+}
@@ -0,0 +1,15 @@
+package com.dbdeploy.jfr;
+
+import jdk.jfr.*;
+
+@Name("com.dbdeploy.TemplateRender")
+@Label("Template Render")
+@Category("dbdeploy")
+@Description("Rendering change scripts into an output file through a template")
+class TemplateRenderEvent extends Event {
+	@Label("Template")
+	String template;
+
+	@Label("Scripts")
+	int scripts;
+}
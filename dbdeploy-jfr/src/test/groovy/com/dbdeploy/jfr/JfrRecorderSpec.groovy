@@ -0,0 +1,56 @@
+package com.dbdeploy.jfr
+
+import com.dbdeploy.scripts.ChangeScript
+import jdk.jfr.consumer.RecordingFile
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class JfrRecorderSpec extends Specification {
+
+	File file = Files.createTempFile("dbdeploy", ".jfr").toFile()
+	ChangeScript script = new ChangeScript(7, "007_create.sql")
+
+
+	def cleanup() {
+		file.delete()
+	}
+
+
+	def 'should record a deploy as dbdeploy events'() {
+		given:
+			final recorder = new JfrRecorder(file)
+
+		when:
+			recorder.deployStarted 'changelog'
+			recorder.scanStarted new File('scripts')
+			recorder.scanFinished new File('scripts'), 1, 0
+			recorder.changeLogReadStarted()
+			recorder.changeLogReadFinished 0, 0
+			recorder.scriptStarted script
+			recorder.statementStarted script, 1, 'INSERT 1'
+			recorder.statementFinished script, 1, 'INSERT 1', 0, 1, null
+			recorder.scriptFinished script, 0, null
+			recorder.commitStarted 1
+			recorder.committed 1, 0
+			recorder.templateRenderStarted 'hsql_apply.ftl', 1
+			recorder.templateRenderFinished 'hsql_apply.ftl', 1, 0
+			recorder.deployFinished 'changelog', 0, null
+			recorder.close()
+
+		then:
+			final events = RecordingFile.readAllEvents(file.toPath())
+					.findAll { it.eventType.categoryNames.contains('dbdeploy') }
+			events*.eventType*.name as Set == [
+					'com.dbdeploy.Deploy', 'com.dbdeploy.Scan', 'com.dbdeploy.ChangeLogRead',
+					'com.dbdeploy.Script', 'com.dbdeploy.Statement', 'com.dbdeploy.Commit',
+					'com.dbdeploy.TemplateRender'] as Set
+
+		and:
+			with(events.find { it.eventType.name == 'com.dbdeploy.Statement' }) {
+				getLong('scriptId') == 7
+				getInt('statementIndex') == 1
+				getInt('rowsAffected') == 1
+			}
+	}
+}
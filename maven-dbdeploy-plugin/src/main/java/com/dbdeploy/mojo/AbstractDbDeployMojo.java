@@ -18,6 +18,8 @@ package com.dbdeploy.mojo;
 
 import com.dbdeploy.DbDeploy;
 import com.dbdeploy.database.*;
+import com.dbdeploy.listener.*;
+import com.dbdeploy.log.*;
 import org.apache.maven.plugin.AbstractMojo;
 
 import java.io.File;
@@ -94,7 +96,8 @@ public abstract class AbstractDbDeployMojo extends AbstractMojo {
 
 	/**
 	 * Either normal: split on delimiter wherever it occurs or row  only split
-	 * on delimiter if it features on a line by itself. Default normal.
+	 * on delimiter if it features on a line by itself, or lexical: split on delimiter
+	 * outside literals, comments, dollar quotes and BEGIN ... END blocks. Default normal.
 	 *
 	 * @parameter expression="${dbdeploy.delimiterType}"
 	 */
@@ -109,6 +112,124 @@ public abstract class AbstractDbDeployMojo extends AbstractMojo {
 	 */
 	protected String lineEnding;
 
+	/**
+	 * Largest number of consecutive INSERT, UPDATE, DELETE or MERGE statements to send
+	 * to the database as one JDBC batch when applying directly. Default off.
+	 *
+	 * @parameter expression="${dbdeploy.batchSize}"
+	 */
+	protected Integer batchSize;
+
+	/**
+	 * Whether to adapt the batch size to how fast the database handles batches,
+	 * never going above batchSize. Default false.
+	 *
+	 * @parameter expression="${dbdeploy.adaptiveBatchSize}"
+	 */
+	protected Boolean adaptiveBatchSize;
+
+	/**
+	 * How many scripts share a transaction when applying directly: script (commit after
+	 * every script), count (commit every commitInterval scripts) or deploy (commit once
+	 * at the end). Default script.
+	 *
+	 * @parameter expression="${dbdeploy.transactionGrouping}"
+	 */
+	protected String transactionGrouping;
+
+	/**
+	 * Scripts per commit when transactionGrouping is count. Default 100.
+	 *
+	 * @parameter expression="${dbdeploy.commitInterval}"
+	 */
+	protected Integer commitInterval;
+
+	/**
+	 * Number of statements to read and split ahead on a separate thread while applying
+	 * directly, overlapping reading the scripts with executing them. Default off.
+	 *
+	 * @parameter expression="${dbdeploy.pipelineDepth}"
+	 */
+	protected Integer pipelineDepth;
+
+	/**
+	 * Whether to render output files one script at a time through a large buffer, keeping
+	 * memory flat for very large script directories. Default false.
+	 *
+	 * @parameter expression="${dbdeploy.streamingOutput}"
+	 */
+	protected Boolean streamingOutput;
+
+	/**
+	 * File to write per-script and per-statement timings to as JSON.
+	 *
+	 * @parameter expression="${dbdeploy.timingReport}"
+	 */
+	protected File timingReport;
+
+	/**
+	 * File to write counters and latency histograms to in the Prometheus text format, e.g. for
+	 * the node exporter's textfile collector.
+	 *
+	 * @parameter expression="${dbdeploy.metricsFile}"
+	 */
+	protected File metricsFile;
+
+	/**
+	 * Whether to record a checksum of every applied script in the changelog table's checksum
+	 * column, and to check the scripts already applied with one before applying more.
+	 * Default false.
+	 *
+	 * @parameter expression="${dbdeploy.checksums}"
+	 */
+	protected Boolean checksums;
+
+	/**
+	 * Whether to take the lock in the changelog's lock table before applying scripts, so that
+	 * nodes deploying at the same time take turns. Default false.
+	 *
+	 * @parameter expression="${dbdeploy.deployLock}"
+	 */
+	protected Boolean deployLock;
+
+	/**
+	 * Seconds to wait for the deploy lock. Default 600.
+	 *
+	 * @parameter expression="${dbdeploy.lockTimeout}"
+	 */
+	protected Integer lockTimeout;
+
+	/**
+	 * Seconds a deploy lock stays taken without a heartbeat from its holder. Default 30.
+	 *
+	 * @parameter expression="${dbdeploy.lockLease}"
+	 */
+	protected Integer lockLease;
+
+	/**
+	 * Directory to keep a manifest of each scanned script directory in, so that a directory
+	 * that has not changed since the last build is not listed again. Default none.
+	 *
+	 * @parameter expression="${dbdeploy.manifestDirectory}"
+	 */
+	protected File manifestDirectory;
+
+	/**
+	 * Whether to take scripts from every directory below scriptdirectory too, ordered by
+	 * number as one set of scripts. Default false.
+	 *
+	 * @parameter expression="${dbdeploy.recursive}"
+	 */
+	protected Boolean recursive;
+
+	/**
+	 * How much progress dbdeploy writes to standard error: quiet (warnings only), normal or
+	 * verbose (also script content cache statistics). Default normal.
+	 *
+	 * @parameter expression="${dbdeploy.logLevel}"
+	 */
+	protected String logLevel;
+
 	/**
 	 * The highest numbered delta script to apply.
 	 *
@@ -148,6 +269,81 @@ public abstract class AbstractDbDeployMojo extends AbstractMojo {
 			dbDeploy.setLineEnding(LineEnding.valueOf(lineEnding));
 		}
 
+		if (batchSize != null) {
+			dbDeploy.setBatchSize(batchSize);
+		}
+
+		if (adaptiveBatchSize != null) {
+			dbDeploy.setAdaptiveBatchSize(adaptiveBatchSize);
+		}
+
+		if (transactionGrouping != null) {
+			dbDeploy.setTransactionGrouping(TransactionGrouping.valueOf(transactionGrouping));
+		}
+
+		if (commitInterval != null) {
+			dbDeploy.setCommitInterval(commitInterval);
+		}
+
+		if (pipelineDepth != null) {
+			dbDeploy.setPipelineDepth(pipelineDepth);
+		}
+
+		if (streamingOutput != null) {
+			dbDeploy.setStreamingOutput(streamingOutput);
+		}
+
+		if (timingReport != null) {
+			dbDeploy.addListener(new JsonTimingReport(timingReport));
+		}
+
+		if (metricsFile != null) {
+			dbDeploy.addListener(new DeployMetrics(metricsFile));
+		}
+
+		if (checksums != null) {
+			dbDeploy.setChecksums(checksums);
+		}
+
+		if (deployLock != null) {
+			dbDeploy.setDeployLock(deployLock);
+		}
+
+		if (lockTimeout != null) {
+			dbDeploy.setLockTimeout(lockTimeout);
+		}
+
+		if (lockLease != null) {
+			dbDeploy.setLockLease(lockLease);
+		}
+
+		if (manifestDirectory != null) {
+			dbDeploy.setScanManifestDirectory(manifestDirectory);
+		}
+
+		if (recursive != null) {
+			dbDeploy.setRecursiveScan(recursive);
+		}
+
 		return dbDeploy;
 	}
+
+	/**
+	 * Runs {@code dbDeploy} at the configured log level. The level is process-wide, so the
+	 * previous one is put back for whatever runs next in this JVM.
+	 */
+	protected void go(DbDeploy dbDeploy) throws Exception {
+		LogLevel previousLogLevel = Log.getLevel();
+
+		try {
+			if (logLevel != null) {
+				Log.setLevel(LogLevel.valueOf(logLevel));
+			}
+
+			dbDeploy.go();
+		}
+		finally {
+			Log.setLevel(previousLogLevel);
+		}
+	}
 }
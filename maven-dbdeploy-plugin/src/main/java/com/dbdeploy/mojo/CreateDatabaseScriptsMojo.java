@@ -65,7 +65,7 @@ public class CreateDatabaseScriptsMojo extends AbstractDbDeployMojo {
 		DbDeploy dbDeploy = getConfiguredDbDeploy();
 
 		try {
-			dbDeploy.go();
+			go(dbDeploy);
 		}
 		catch (Exception e) {
 			getLog().error(e);
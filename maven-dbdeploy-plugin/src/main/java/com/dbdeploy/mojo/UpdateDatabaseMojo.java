@@ -31,7 +31,7 @@ public class UpdateDatabaseMojo extends AbstractDbDeployMojo {
 		DbDeploy dbDeploy = getConfiguredDbDeploy();
 
 		try {
-			dbDeploy.go();
+			go(dbDeploy);
 		}
 		catch (Exception e) {
 			getLog().error(e);